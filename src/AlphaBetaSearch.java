@@ -0,0 +1,324 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A game-tree search that picks the best pit for a position.
+ * The search is a negamax alpha-beta with iterative deepening under a time budget.
+ * Moves that end in the mover's own Mancala are tried first, since they keep the turn
+ * and usually cut the tree the most. A free move keeps the same side to move, so its
+ * score is not negated.
+ * Positions are hashed incrementally and results are kept in a {@link TranspositionTable},
+ * so positions reached through different move orders are searched only once.
+ * With an {@link EndgameDatabase}, positions with few stones left are scored exactly
+ * without searching them.
+ * An instance keeps its own position stack and is not thread-safe, but several instances
+ * may share one table and stop signal to search in parallel (see {@link ParallelSearch}).
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class AlphaBetaSearch {
+    public static final int MAX_DEPTH = 64;
+    private static final int INFINITY = 1_000_000;
+    private static final int SIDE_PITS = BoardEngine.PLAYER_A_PIT;
+    private static final int RING = BoardEngine.MAX_PITS - 1;
+    private static final int ROTATED_PLIES = 2;
+
+    private final int[][] stack = new int[MAX_DEPTH + 1][BoardEngine.MAX_PITS];
+    private final int[][] moveLists = new int[MAX_DEPTH + 1][SIDE_PITS];
+    private final long[] hashes = new long[MAX_DEPTH + 1];
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal;
+    private int startDepth;
+    private int moveRotation;
+    private EndgameDatabase endgame;
+    private long nodes;
+    private long deadline;
+    private boolean stopped;
+    private boolean horizon;
+    private int rootBest;
+
+    /** Constructs a search with its own transposition table of about a million entries. */
+    public AlphaBetaSearch() {
+        this(new TranspositionTable(20));
+    }
+
+    /**
+     * Constructs a search using a specified transposition table.
+     * @param table a transposition table
+     */
+    public AlphaBetaSearch(TranspositionTable table) {
+        this(table, null);
+    }
+
+    /**
+     * Constructs a search sharing a transposition table and a stop signal with other searches.
+     * @param table a transposition table
+     * @param stopSignal a flag that stops the search when set, or null
+     */
+    public AlphaBetaSearch(TranspositionTable table, AtomicBoolean stopSignal) {
+        this.table = table;
+        this.stopSignal = stopSignal;
+        this.startDepth = 1;
+    }
+
+    /**
+     * Searches the current position of a model for a player.
+     * @param model a specified model
+     * @param player the player to move
+     * @param millis the time budget in milliseconds
+     * @return the best pit and search statistics
+     */
+    public SearchResult search(MancalaModel model, Player player, long millis) {
+        int side = player == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+        return search(model.getPits(), side, millis, MAX_DEPTH);
+    }
+
+    /**
+     * Searches a position with iterative deepening until the time budget or the depth
+     * limit is reached, or the game tree is exhausted.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param millis the time budget in milliseconds
+     * @param maxDepth the deepest iteration to run
+     * @return the best pit of the deepest completed iteration and search statistics
+     */
+    public SearchResult search(int[] pits, int side, long millis, int maxDepth) {
+        table.newSearch();
+        return deepen(pits, side, millis, maxDepth);
+    }
+
+    /**
+     * Runs the iterative deepening of {@link #search(int[], int, long, int)} without starting
+     * a new table generation, for searches that share a table.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param millis the time budget in milliseconds
+     * @param maxDepth the deepest iteration to run
+     * @return the best pit of the deepest completed iteration and search statistics
+     * @throws IllegalArgumentException if the position is not on the standard board
+     */
+    public SearchResult deepen(int[] pits, int side, long millis, int maxDepth) {
+        if (pits.length != BoardEngine.MAX_PITS) {
+            throw new IllegalArgumentException("the search only plays the standard board");
+        }
+        long start = System.nanoTime();
+        deadline = start + millis * 1_000_000L;
+        stopped = false;
+        nodes = 0;
+
+        int bestPit = -1;
+        int bestScore = 0;
+        int completed = 0;
+        System.arraycopy(pits, 0, stack[0], 0, BoardEngine.MAX_PITS);
+        hashes[0] = Zobrist.hash(pits, side);
+
+        for (int depth = startDepth; depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+            horizon = false;
+            rootBest = bestPit;
+            int score = negamax(0, depth, -INFINITY, INFINITY, side);
+            if (stopped) break;
+
+            bestPit = rootBest;
+            bestScore = score;
+            completed = depth;
+            if (!horizon) break; // Every line reached the end of the game
+        }
+
+        // Out of time before the first iteration finished: fall back to the first ordered pit
+        if (bestPit < 0 && orderMoves(stack[0], side, moveLists[0], -1) > 0) {
+            bestPit = moveLists[0][0];
+        }
+        return new SearchResult(bestPit, bestScore, completed, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the static score of a position: the Mancala difference for a side.
+     * @param pits the stones in every pit
+     * @param side a specified side
+     * @return the score from that side's point of view
+     */
+    public static int evaluate(int[] pits, int side) {
+        return pits[BoardEngine.STANDARD.store(side)] - pits[BoardEngine.STANDARD.store(side ^ 1)];
+    }
+
+    /**
+     * Returns the transposition table of this search.
+     * @return a transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /**
+     * Sets the depth of the first iteration. Parallel helpers start deeper so they
+     * do not all search the same iteration at the same time.
+     * @param startDepth a depth of at least 1
+     */
+    public void setStartDepth(int startDepth) {
+        this.startDepth = Math.max(1, startDepth);
+    }
+
+    /**
+     * Sets how many places the moves after the first are rotated near the root, so that
+     * parallel helpers search the alternatives to the best move in different orders and fill
+     * the shared table with different subtrees instead of repeating each other. The first
+     * move, the stored best pit when there is one, is always searched first.
+     * @param moveRotation 0 for the usual order
+     */
+    public void setMoveRotation(int moveRotation) {
+        this.moveRotation = Math.max(0, moveRotation);
+    }
+
+    /**
+     * Sets an endgame database used to score positions with few stones exactly.
+     * @param endgame a database, or null to search every position
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        this.endgame = endgame;
+    }
+
+    /**
+     * Searches the position at a ply and returns its score for the side to move.
+     */
+    private int negamax(int ply, int depth, int alpha, int beta, int side) {
+        if ((++nodes & 1023) == 0 && (System.nanoTime() > deadline
+                || stopSignal != null && stopSignal.get())) {
+            stopped = true;
+        }
+        if (stopped) return 0;
+
+        int[] pos = stack[ply];
+        if (endgame != null && ply > 0) {
+            int exact = endgame.probe(pos, side);
+            if (exact != EndgameDatabase.UNKNOWN) return evaluate(pos, side) + exact;
+        }
+        if (depth == 0) {
+            horizon = true;
+            return evaluate(pos, side);
+        }
+
+        // Reuse a stored result when it was searched at least as deep
+        long hash = hashes[ply];
+        long entry = table.probe(hash);
+        int hint = ply == 0 ? rootBest : -1;
+        if (entry != 0) {
+            if (hint < 0) hint = TranspositionTable.move(entry);
+            int stored = TranspositionTable.depth(entry);
+            if (ply > 0 && stored >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    if (stored != TranspositionTable.SOLVED) horizon = true;
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = moveLists[ply];
+        int count = orderMoves(pos, side, moves, hint);
+        if (moveRotation > 0 && ply < ROTATED_PLIES && count > 2) {
+            rotate(moves, 1, count, (moveRotation + ply) % (count - 1));
+        }
+        int[] child = stack[ply + 1];
+        int alphaStart = alpha;
+        int best = -INFINITY;
+        int bestPit = -1;
+        boolean outerHorizon = horizon;
+        horizon = false;
+
+        for (int i = 0; i < count; i++) {
+            int pit = moves[i];
+            System.arraycopy(pos, 0, child, 0, BoardEngine.MAX_PITS);
+            int flags = BoardEngine.STANDARD.move(child, pit, side);
+            boolean free = (flags & BoardEngine.FREE_MOVE) != 0;
+            hashes[ply + 1] = Zobrist.update(hash, pos, child, !free);
+
+            int score;
+            if ((flags & BoardEngine.GAME_OVER) != 0) {
+                score = evaluate(child, side);
+            }
+            else if (free) {
+                score = negamax(ply + 1, depth - 1, alpha, beta, side);
+            }
+            else {
+                score = -negamax(ply + 1, depth - 1, -beta, -alpha, side ^ 1);
+            }
+            if (stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestPit = pit;
+                if (ply == 0) rootBest = pit;
+            }
+            if (best > alpha) alpha = best;
+            if (alpha >= beta) break;
+        }
+
+        // Subtrees that never reached the depth limit are exact to the end of the game
+        int bound = best <= alphaStart ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(hash, horizon ? depth : TranspositionTable.SOLVED, bound, best, bestPit);
+        horizon |= outerHorizon;
+        return best;
+    }
+
+    /**
+     * Rotates the moves of a list from an index to the left, by reversing both parts and then the whole.
+     */
+    private static void rotate(int[] moves, int from, int count, int places) {
+        reverse(moves, from, from + places);
+        reverse(moves, from + places, count);
+        reverse(moves, from, count);
+    }
+
+    /**
+     * Reverses the moves from one index, inclusive, to another, exclusive.
+     */
+    private static void reverse(int[] moves, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int t = moves[i];
+            moves[i] = moves[j];
+            moves[j] = t;
+        }
+    }
+
+    /**
+     * Fills a move list with the legal pits of a side: the hinted pit first if it is legal,
+     * then pits whose last stone lands in the mover's Mancala, then the rest.
+     * @return the number of legal pits
+     */
+    private static int orderMoves(int[] pits, int side, int[] moves, int hint) {
+        int store = BoardEngine.STANDARD.store(side);
+        int count = 0;
+        if (!BoardEngine.STANDARD.isLegal(pits, hint, side)) hint = -1; // A hash collision may store another board's pit
+        if (hint >= 0) moves[count++] = hint;
+
+        // Pits nearest to the Mancala first, so chained free moves are found early
+        for (int pit = store - 1; pit >= store - SIDE_PITS; pit--) {
+            if (pit != hint && pits[pit] > 0 && pits[pit] % RING == store - pit) {
+                moves[count++] = pit;
+            }
+        }
+        for (int pit = store - 1; pit >= store - SIDE_PITS; pit--) {
+            if (pit != hint && pits[pit] > 0 && pits[pit] % RING != store - pit) {
+                moves[count++] = pit;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Searches the opening position and prints the result of the search.
+     * Usage: {@code java AlphaBetaSearch [stones] [millis]}
+     * @param args optional number of stones per pit and time budget
+     */
+    public static void main(String[] args) {
+        int stones = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 5000;
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        BoardEngine.STANDARD.setStones(pits, stones);
+        System.out.println(stones + " stones: " + new AlphaBetaSearch().search(pits, BoardEngine.SIDE_A, millis, MAX_DEPTH));
+    }
+}
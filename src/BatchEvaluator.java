@@ -0,0 +1,264 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a {@link PositionBatch} of the standard board with the Kalah rules into
+ * {@link PositionFeatures}. The batch is split across a fork-join pool into slices small enough
+ * to stay in the cache, and each slice is evaluated one pit column at a time. The column loops have no branches, calls or indirect
+ * loads, only compares, shifts and multiplications on primitive arrays, so the JIT compiler
+ * can unroll and auto-vectorize them. Every feature is computed in closed form from the stones
+ * in the pits rather than by playing the moves.
+ * Usage: {@code java BatchEvaluator [positions] [threads]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class BatchEvaluator {
+    /** The most positions evaluated as one slice, about 60 KB of pit columns. */
+    public static final int SLICE = 4096;
+    private static final int SIDE_PITS = BoardEngine.PLAYER_A_PIT;
+    private static final int STORE = BoardEngine.PLAYER_A_PIT;
+    private static final int OPPONENT_STORE = BoardEngine.PLAYER_B_PIT;
+    private static final int RING = BoardEngine.MAX_PITS - 1;
+    // (stones * 5042) >>> 16 is stones / RING for fewer than 5000 stones
+    private static final int RING_RECIPROCAL = 5042;
+
+    private final ForkJoinPool pool;
+    private final int scoreWeight;
+    private final int mobilityWeight;
+    private final int freeMoveWeight;
+    private final int captureWeight;
+
+    /** Constructs an evaluator on the common pool with the default weights. */
+    public BatchEvaluator() {
+        this(ForkJoinPool.commonPool(), 4, 1, 2, 2);
+    }
+
+    /**
+     * Constructs an evaluator.
+     * @param pool the pool evaluating the slices of a batch
+     * @param scoreWeight the weight of the Mancala difference in the evaluation
+     * @param mobilityWeight the weight of the number of legal moves
+     * @param freeMoveWeight the weight of the number of free moves
+     * @param captureWeight the weight of the number of capturing moves
+     */
+    public BatchEvaluator(ForkJoinPool pool, int scoreWeight, int mobilityWeight, int freeMoveWeight,
+                          int captureWeight) {
+        this.pool = pool;
+        this.scoreWeight = scoreWeight;
+        this.mobilityWeight = mobilityWeight;
+        this.freeMoveWeight = freeMoveWeight;
+        this.captureWeight = captureWeight;
+    }
+
+    /**
+     * Evaluates every position of a batch.
+     * @param batch the positions
+     * @param features receives the features of the positions, with at least the batch's size
+     */
+    public void evaluate(PositionBatch batch, PositionFeatures features) {
+        if (features.getCapacity() < batch.size()) {
+            throw new IllegalArgumentException("features hold fewer positions than the batch");
+        }
+        pool.invoke(new Slice(batch, features, 0, batch.size()));
+    }
+
+    /**
+     * Evaluates every position of a batch into new feature arrays.
+     * @param batch the positions
+     * @return the features of the positions
+     */
+    public PositionFeatures evaluate(PositionBatch batch) {
+        PositionFeatures features = new PositionFeatures(batch.size());
+        evaluate(batch, features);
+        return features;
+    }
+
+    /**
+     * Evaluates the positions of a batch in a range on the calling thread.
+     * @param batch the positions
+     * @param features receives the features
+     * @param from the first position
+     * @param to the position after the last one
+     */
+    public void evaluateRange(PositionBatch batch, PositionFeatures features, int from, int to) {
+        for (int block = from; block < to; block += SLICE) {
+            evaluateBlock(batch, features, block, Math.min(to, block + SLICE));
+        }
+    }
+
+    /**
+     * Evaluates a block of positions small enough for its columns to stay in the cache
+     * while every feature loop passes over them.
+     */
+    private void evaluateBlock(PositionBatch batch, PositionFeatures features, int from, int to) {
+        int[] score = features.getScoreDiff();
+        int[] mobility = features.getMobility();
+        int[] free = features.getFreeMoves();
+        int[] threats = features.getCaptureThreats();
+        int[] eval = features.getEvaluation();
+
+        int[] store = batch.column(STORE);
+        int[] opponentStore = batch.column(OPPONENT_STORE);
+        for (int k = from; k < to; k++) {
+            score[k] = store[k] - opponentStore[k];
+            mobility[k] = 0;
+            free[k] = 0;
+            threats[k] = 0;
+        }
+
+        for (int pit = 0; pit < SIDE_PITS; pit++) {
+            int[] stones = batch.column(pit);
+            int toStore = STORE - pit;
+            for (int k = from; k < to; k++) {
+                int s = stones[k];
+                mobility[k] += -s >>> 31;
+                // Free move when the stones left after whole laps just reach the Mancala
+                free[k] += isZero((s - RING * ((s * RING_RECIPROCAL) >>> 16)) ^ toStore);
+            }
+        }
+
+        // A move captures when its last stone lands on an empty pit of the mover: a pit further
+        // along whose opposite pit has stones, a pit behind it after going round the board, where
+        // the opposite pit has just received a stone, or the starting pit after exactly one lap
+        for (int pit = 0; pit < SIDE_PITS; pit++) {
+            int[] stones = batch.column(pit);
+            for (int target = 0; target < SIDE_PITS; target++) {
+                int[] landing = batch.column(target);
+                if (target > pit) {
+                    int[] opposite = batch.column(OPPONENT_STORE - 1 - target);
+                    int distance = target - pit;
+                    for (int k = from; k < to; k++) {
+                        threats[k] += isZero(stones[k] ^ distance) & isZero(landing[k]) & (-opposite[k] >>> 31);
+                    }
+                }
+                else if (target < pit) {
+                    int distance = target - pit + RING;
+                    for (int k = from; k < to; k++) {
+                        threats[k] += isZero(stones[k] ^ distance) & isZero(landing[k]);
+                    }
+                }
+                else {
+                    for (int k = from; k < to; k++) {
+                        threats[k] += isZero(stones[k] ^ RING);
+                    }
+                }
+            }
+        }
+
+        for (int k = from; k < to; k++) {
+            eval[k] = scoreWeight * score[k] + mobilityWeight * mobility[k]
+                    + freeMoveWeight * free[k] + captureWeight * threats[k];
+        }
+    }
+
+    /**
+     * Returns the pool evaluating the slices of a batch.
+     * @return a fork-join pool
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns 1 for zero and 0 for any positive number, without branching.
+     */
+    private static int isZero(int value) {
+        return (value - 1) >>> 31;
+    }
+
+    /**
+     * A range of positions, split in halves until it is small enough to evaluate directly.
+     */
+    private class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final PositionBatch batch;
+        private final PositionFeatures features;
+        private final int from;
+        private final int to;
+
+        Slice(PositionBatch batch, PositionFeatures features, int from, int to) {
+            this.batch = batch;
+            this.features = features;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SLICE) {
+                evaluateBlock(batch, features, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Slice(batch, features, from, mid), new Slice(batch, features, mid, to));
+        }
+    }
+
+    /**
+     * Fills a batch with positions from random games, checks the features of every position
+     * against moves played with the engine, and prints the evaluation speed.
+     * @param args optional number of positions and threads
+     */
+    public static void main(String[] args) {
+        int positions = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        PositionBatch batch = new PositionBatch(positions);
+        SplittableRandom random = new SplittableRandom(1);
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        int side = BoardEngine.SIDE_A;
+        BoardEngine.STANDARD.setStones(pits, 4);
+        while (batch.size() < positions) {
+            batch.add(pits, side);
+            int pit;
+            do {
+                pit = random.nextInt(BoardEngine.MAX_PITS);
+            } while (!BoardEngine.STANDARD.isLegal(pits, pit, side));
+            int flags = BoardEngine.STANDARD.move(pits, pit, side);
+            side = BoardEngine.nextSide(side, flags);
+            if ((flags & BoardEngine.GAME_OVER) != 0) {
+                BoardEngine.STANDARD.setStones(pits, 1 + random.nextInt(6));
+                side = BoardEngine.SIDE_A;
+            }
+        }
+
+        PositionFeatures features = new PositionFeatures(positions);
+        BatchEvaluator parallel = new BatchEvaluator(new ForkJoinPool(threads), 4, 1, 2, 2);
+        for (int run = 0; run < 10; run++) {
+            long start = System.nanoTime();
+            parallel.evaluate(batch, features);
+            long parallelNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            parallel.evaluateRange(batch, features, 0, positions);
+            long serialNanos = System.nanoTime() - start;
+            System.out.printf("%,d positions  %d threads %,15d/s  1 thread %,15d/s%n", positions, threads,
+                    positions * 1_000_000_000L / parallelNanos, positions * 1_000_000_000L / serialNanos);
+        }
+
+        int[] child = new int[BoardEngine.MAX_PITS];
+        for (int i = 0; i < positions; i++) {
+            int mover = batch.get(i, pits);
+            int mobility = 0;
+            int free = 0;
+            int threats = 0;
+            for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+                if (!BoardEngine.STANDARD.isLegal(pits, pit, mover)) continue;
+                System.arraycopy(pits, 0, child, 0, BoardEngine.MAX_PITS);
+                int flags = BoardEngine.STANDARD.move(child, pit, mover);
+                mobility++;
+                free += flags & BoardEngine.FREE_MOVE;
+                threats += (flags & BoardEngine.CAPTURE) >> 1;
+            }
+            if (features.getScoreDiff()[i] != AlphaBetaSearch.evaluate(pits, mover)
+                    || features.getMobility()[i] != mobility || features.getFreeMoves()[i] != free
+                    || features.getCaptureThreats()[i] != threats) {
+                System.out.println("MISMATCH at position " + i);
+                System.exit(1);
+            }
+        }
+        System.out.println("features match the engine for all positions");
+        parallel.getPool().shutdown();
+    }
+}
@@ -0,0 +1,294 @@
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A micro-benchmark harness for the model and rendering hot paths.
+ * Each benchmark is warmed up, then timed over several fixed-length iterations, and reported
+ * as the mean time per operation with its standard deviation. Results are consumed so the
+ * JIT compiler cannot remove the measured work.
+ * Usage: {@code java -Djava.awt.headless=true Benchmark [name filter]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class Benchmark {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+    private static volatile long sink;
+
+    private final Map<String, LongUnaryOperator> benchmarks = new LinkedHashMap<>();
+
+    /**
+     * Registers a benchmark.
+     * @param name the name of the benchmark
+     * @param body runs a number of operations and returns a value depending on their results
+     */
+    public void add(String name, LongUnaryOperator body) {
+        benchmarks.put(name, body);
+    }
+
+    /**
+     * Runs every benchmark whose name contains a filter and prints its results.
+     * @param filter a part of the benchmark names to run, or an empty string for all
+     */
+    public void run(String filter) {
+        System.out.printf("%-40s %14s %12s%n", "benchmark", "ns/op", "error");
+        for (Map.Entry<String, LongUnaryOperator> e : benchmarks.entrySet()) {
+            if (!e.getKey().contains(filter)) continue;
+            LongUnaryOperator body = e.getValue();
+            sink += body.applyAsLong(1); // Keep one-time setup out of the calibration
+            long ops = calibrate(body);
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                sink += body.applyAsLong(ops);
+            }
+
+            double[] samples = new double[MEASURE_ITERATIONS];
+            for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                sink += body.applyAsLong(ops);
+                samples[i] = (double) (System.nanoTime() - start) / ops;
+            }
+            double mean = 0;
+            for (double s : samples) mean += s / samples.length;
+            double variance = 0;
+            for (double s : samples) variance += (s - mean) * (s - mean) / (samples.length - 1);
+            System.out.printf("%-40s %14.1f %12.1f%n", e.getKey(), mean, Math.sqrt(variance));
+        }
+    }
+
+    /**
+     * Returns a number of operations that takes about one iteration.
+     */
+    private static long calibrate(LongUnaryOperator body) {
+        long ops = 1;
+        while (true) {
+            long start = System.nanoTime();
+            sink += body.applyAsLong(ops);
+            long elapsed = System.nanoTime() - start;
+            if (elapsed > ITERATION_NANOS / 10) {
+                return Math.max(1, ops * ITERATION_NANOS / elapsed);
+            }
+            ops *= 2;
+        }
+    }
+
+    /**
+     * Returns the next playable pit of a model, restarting the game when it is complete.
+     */
+    private static int nextPit(MancalaModel model, int from) {
+        if (model.getState() != GameState.PLAYING) {
+            model.setStones(4);
+            model.setPlayer(Player.A);
+            model.startNewGame();
+        }
+        for (int i = 0; i < model.MAX_PITS; i++) {
+            int pit = (from + i) % model.MAX_PITS;
+            if (model.playable(pit)) return pit;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the next legal pit for a side, restarting the game with four stones per pit when it is over.
+     */
+    private static int nextPit(BoardEngine engine, int[] pits, int side, int from) {
+        if (engine.isOver(pits)) {
+            engine.setStones(pits, 4);
+        }
+        int count = engine.getPitCount();
+        for (int i = 0; i < count; i++) {
+            int pit = (from + i) % count;
+            if (engine.isLegal(pits, pit, side)) return pit;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a pit with a number of stones, formatted as the oak board does.
+     */
+    private static StonePit pit(int stones) {
+        StonePit pit = new StonePit(10, 10, 80, 150);
+        pit.setShape(new Rectangle2D.Double(10, 10, 80, 150));
+        pit.setNumberOfStones(stones);
+        return pit;
+    }
+
+    public static void main(String[] args) {
+        Benchmark bench = new Benchmark();
+
+        MancalaModel moveModel = new MancalaModel();
+        bench.add("MancalaModel.move", ops -> {
+            long result = 0;
+            for (long i = 0; i < ops; i++) {
+                moveModel.move(nextPit(moveModel, (int) i));
+                result += moveModel.getScoreCard(Player.A);
+            }
+            return result;
+        });
+
+        for (int pitsPerSide : new int[]{6, 8, 10}) {
+            BoardEngine engine = BoardEngine.of(pitsPerSide);
+            int[] pits = new int[engine.getPitCount()];
+            int[] side = new int[1];
+            bench.add("BoardEngine.move " + pitsPerSide + " pits/side", ops -> {
+                long result = 0;
+                for (long i = 0; i < ops; i++) {
+                    int pit = nextPit(engine, pits, side[0], (int) i);
+                    int flags = engine.move(pits, pit, side[0]);
+                    side[0] = BoardEngine.nextSide(side[0], flags);
+                    result += flags;
+                }
+                return result;
+            });
+        }
+
+        for (String variant : new String[]{NoCaptureRules.NAME, OwareRules.NAME, NoSweepRules.NAME}) {
+            BoardEngine engine = new BoardEngine(BoardEngine.STANDARD.getPitsPerSide(), RuleVariant.of(variant));
+            int[] pits = new int[engine.getPitCount()];
+            int[] side = new int[1];
+            bench.add("BoardEngine.move " + variant + " rules", ops -> {
+                long result = 0;
+                for (long i = 0; i < ops; i++) {
+                    int pit = nextPit(engine, pits, side[0], (int) i);
+                    int flags = engine.move(pits, pit, side[0]);
+                    side[0] = BoardEngine.nextSide(side[0], flags);
+                    result += flags;
+                }
+                return result;
+            });
+        }
+
+        MancalaModel undoModel = new MancalaModel();
+        bench.add("MancalaModel.move+undoMove", ops -> {
+            long result = 0;
+            for (long i = 0; i < ops; i++) {
+                undoModel.move(nextPit(undoModel, (int) i));
+                undoModel.setUndoCount1(0);
+                undoModel.setUndoCount2(0);
+                undoModel.undoMove();
+                result += undoModel.getPits()[(int) (i % undoModel.MAX_PITS)];
+            }
+            return result;
+        });
+
+        for (int listeners : new int[]{1, 16, 256}) {
+            MancalaModel fanOut = new MancalaModel();
+            long[] calls = new long[1];
+            List<ChangeListener> observers = new ArrayList<>();
+            for (int i = 0; i < listeners; i++) {
+                observers.add(e -> calls[0]++);
+            }
+            observers.forEach(fanOut::attach);
+            bench.add("notifyListeners x" + listeners, ops -> {
+                for (long i = 0; i < ops; i++) {
+                    fanOut.setStones(4); // Notifies every listener once
+                }
+                return calls[0];
+            });
+        }
+
+        MancalaModel viewModel = new MancalaModel();
+        viewModel.setStones(4);
+        viewModel.startNewGame();
+        MancalaView view = new MancalaView(viewModel);
+        bench.add("MancalaView.updateGame", ops -> {
+            for (long i = 0; i < ops; i++) {
+                view.updateGame();
+            }
+            return view.getComponentCount();
+        });
+        bench.add("MancalaView.stateChanged", ops -> {
+            for (long i = 0; i < ops; i++) {
+                view.stateChanged(null);
+            }
+            return view.getComponentCount();
+        });
+
+        for (FormatStrategy format : new FormatStrategy[]{new OakBoardFormat(), new FloweryFormat()}) {
+            String name = format.getClass().getSimpleName();
+            bench.add(name + ".backgroundImg+getFont", ops -> {
+                long result = 0;
+                for (long i = 0; i < ops; i++) {
+                    result += format.backgroundImg().hashCode() + format.getFont().getSize();
+                }
+                return result;
+            });
+        }
+
+        BufferedImage image = new BufferedImage(100, 500, BufferedImage.TYPE_INT_ARGB);
+        for (int stones : new int[]{4, 12, 40}) {
+            StonePit pit = pit(stones);
+            bench.add("StonePit.fill " + stones + " stones", ops -> {
+                Graphics2D g = image.createGraphics();
+                for (long i = 0; i < ops; i++) {
+                    pit.fill(g);
+                }
+                g.dispose();
+                return image.getRGB(50, 50);
+            });
+        }
+
+        for (int stones : new int[]{4, 12, 40}) {
+            bench.add("StonePit.drawStones " + stones + " stones (direct)", ops -> {
+                Graphics2D g = image.createGraphics();
+                for (long i = 0; i < ops; i++) {
+                    StonePit.drawStones(g, 10, 10, stones);
+                }
+                g.dispose();
+                return image.getRGB(50, 50);
+            });
+        }
+
+        // A whole frame of a board with many stones in every pit, and the repaint of a single pit,
+        // with the static layer cached and painted on every frame
+        for (boolean cached : new boolean[]{true, false}) {
+            String layer = cached ? "" : " (uncached)";
+            for (int stones : new int[]{4, 40}) {
+                MancalaModel frameModel = new MancalaModel();
+                frameModel.setStones(stones);
+                frameModel.startNewGame();
+                MancalaView frameView = new MancalaView(frameModel);
+                frameView.setSize(870, 480);
+                frameView.setStaticLayerCached(cached);
+                frameView.stateChanged(null);
+                BufferedImage frame = new BufferedImage(870, 480, BufferedImage.TYPE_INT_RGB);
+                bench.add("MancalaView frame " + stones + " stones/pit" + layer, ops -> {
+                    Graphics2D g = frame.createGraphics();
+                    for (long i = 0; i < ops; i++) {
+                        frameView.paintComponent(g);
+                    }
+                    g.dispose();
+                    return frame.getRGB(100, 100);
+                });
+            }
+
+            MancalaModel pitModel = new MancalaModel();
+            pitModel.setStones(4);
+            pitModel.startNewGame();
+            MancalaView pitView = new MancalaView(pitModel);
+            pitView.setSize(870, 480);
+            pitView.setStaticLayerCached(cached);
+            pitView.stateChanged(null);
+            BufferedImage frame = new BufferedImage(870, 480, BufferedImage.TYPE_INT_RGB);
+            bench.add("MancalaView pit repaint" + layer, ops -> {
+                Graphics2D g = frame.createGraphics();
+                g.clip(new Rectangle(100, 280, 90, 170)); // The first pit of side A
+                for (long i = 0; i < ops; i++) {
+                    pitView.paintComponent(g);
+                }
+                g.dispose();
+                return frame.getRGB(120, 300);
+            });
+        }
+
+        bench.run(args.length > 0 ? args[0] : "");
+    }
+}
@@ -0,0 +1,370 @@
+/**
+ * A headless rules engine for the Mancala board.
+ * The engine works directly on an array of stones per pit and does not allocate while
+ * playing a move, so it can be shared by the model, search and analysis code.
+ * Sowing is done in closed form: the full laps around the board are added arithmetically
+ * and only the remaining stones are dropped one pit at a time.
+ * Sides are encoded as integers, {@link #SIDE_A} and {@link #SIDE_B}.
+ * <p>
+ * An engine is made for a board geometry, the number of pits on each side. Pits are numbered
+ * counter-clockwise from side A's first pit: side A's pits, side A's Mancala, side B's pits and
+ * side B's Mancala. The sowing order, opposite pits, owners and Mancalas are precomputed into
+ * lookup tables, so playing a move only reads tables. {@link #STANDARD} is the usual board with
+ * six pits per side; the constants {@link #MAX_PITS}, {@link #PLAYER_A_PIT} and
+ * {@link #PLAYER_B_PIT} describe it for code that only plays on that board.
+ * <p>
+ * What happens after the stones are sown, the last stone rule and the end of the game, is
+ * delegated to a {@link RuleVariant} chosen when the engine is constructed. The built-in
+ * variants are called from a call site of their own, so each site stays monomorphic however
+ * many variants are in use.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.2 12/05/2024
+ */
+public final class BoardEngine {
+    public static final int MAX_PITS = 14;
+    public static final int PLAYER_A_PIT = 6;
+    public static final int PLAYER_B_PIT = 13;
+    public static final int SIDE_A = 0;
+    public static final int SIDE_B = 1;
+    public static final int MIN_PITS_PER_SIDE = 1;
+    public static final int MAX_PITS_PER_SIDE = 16;
+
+    /** Result flag: the last stone landed in the mover's Mancala. */
+    public static final int FREE_MOVE = 1;
+    /** Result flag: the last stone captured the opposite pit. */
+    public static final int CAPTURE = 2;
+    /** Result flag: one side is empty and the remaining stones were swept. */
+    public static final int GAME_OVER = 4;
+
+    // The built-in variants, each finished from its own call site in move
+    private static final int KALAH = 0;
+    private static final int NO_CAPTURE = 1;
+    private static final int OWARE = 2;
+    private static final int NO_SWEEP = 3;
+    private static final int OTHER = 4;
+
+    /** The standard board with six pits per side and the Kalah rules. */
+    public static final BoardEngine STANDARD = new BoardEngine(PLAYER_A_PIT);
+
+    private final int pitsPerSide;
+    private final int pitCount;
+    // Number of pits a player sows into (every pit except the opponent's Mancala)
+    private final int ring;
+    // Side A's sowable pits in sowing order, then side B's, each written twice to avoid a modulo
+    private final int[] sowRing;
+    // Per pit and side, at index pit * 2 + side, the position of the pit in sowRing
+    private final int[] ringPos;
+    private final int[] opposite;
+    private final int[] owner;
+    // The side that may sow from each pit, -1 for the Mancalas
+    private final int[] mover;
+    private final int[] store;
+    private final RuleVariant rules;
+    private final int variant;
+
+    /**
+     * Constructs an engine for a board geometry with the standard Kalah rules.
+     * @param pitsPerSide the number of pits on each side, not counting the Mancalas
+     */
+    public BoardEngine(int pitsPerSide) {
+        this(pitsPerSide, new KalahRules());
+    }
+
+    /**
+     * Constructs an engine for a board geometry and a rule variant.
+     * @param pitsPerSide the number of pits on each side, not counting the Mancalas
+     * @param rules the rules applied after the stones of a move are sown
+     */
+    public BoardEngine(int pitsPerSide, RuleVariant rules) {
+        if (pitsPerSide < MIN_PITS_PER_SIDE || pitsPerSide > MAX_PITS_PER_SIDE) {
+            throw new IllegalArgumentException("pitsPerSide must be between "
+                    + MIN_PITS_PER_SIDE + " and " + MAX_PITS_PER_SIDE);
+        }
+        this.pitsPerSide = pitsPerSide;
+        this.pitCount = 2 * pitsPerSide + 2;
+        this.ring = pitCount - 1;
+        this.sowRing = new int[4 * ring];
+        this.ringPos = new int[2 * pitCount];
+        this.opposite = new int[pitCount];
+        this.owner = new int[pitCount];
+        this.mover = new int[pitCount];
+        this.store = new int[]{pitsPerSide, pitCount - 1};
+        this.rules = rules;
+        this.variant = rules instanceof KalahRules ? KALAH
+                : rules instanceof NoCaptureRules ? NO_CAPTURE
+                : rules instanceof OwareRules ? OWARE
+                : rules instanceof NoSweepRules ? NO_SWEEP : OTHER;
+
+        for (int pit = 0; pit < pitCount; pit++) {
+            owner[pit] = pit <= store[SIDE_A] ? SIDE_A : SIDE_B;
+            opposite[pit] = isMancala(pit) ? pit : store[SIDE_B] - 1 - pit;
+            mover[pit] = isMancala(pit) ? -1 : owner[pit];
+        }
+        for (int side = SIDE_A; side <= SIDE_B; side++) {
+            int skip = store[side ^ 1];
+            int k = side * 2 * ring;
+            for (int i = 1; i <= pitCount; i++) {
+                int pit = i % pitCount;
+                if (pit == skip) continue;
+                sowRing[k] = pit;
+                sowRing[k + ring] = pit;
+                ringPos[pit * 2 + side] = k;
+                k++;
+            }
+            ringPos[skip * 2 + side] = -1;
+        }
+    }
+
+    /**
+     * Returns an engine for a board geometry, the shared {@link #STANDARD} one for six pits per side.
+     * @param pitsPerSide the number of pits on each side
+     * @return an engine
+     */
+    public static BoardEngine of(int pitsPerSide) {
+        return pitsPerSide == STANDARD.pitsPerSide ? STANDARD : new BoardEngine(pitsPerSide);
+    }
+
+    /**
+     * Plays a move for a side: sows the stones of a pit, then applies the rule variant's
+     * last stone rule and end of game.
+     * @param pits the stones in every pit, updated in place
+     * @param pit the index of the pit to sow from
+     * @param side the side making the move
+     * @return a combination of {@link #FREE_MOVE}, {@link #CAPTURE} and {@link #GAME_OVER}
+     */
+    public int move(int[] pits, int pit, int side) {
+        return move(pits, pit, side, null);
+    }
+
+    /**
+     * Plays a move for a side and records the stones the rule variant moves into the Mancalas
+     * by a capture or a sweep, so the move can be reverted later.
+     * @param pits the stones in every pit, updated in place
+     * @param pit the index of the pit to sow from
+     * @param side the side making the move
+     * @param journal receives the captured and swept stones, or null
+     * @return a combination of {@link #FREE_MOVE}, {@link #CAPTURE} and {@link #GAME_OVER}
+     */
+    public int move(int[] pits, int pit, int side, MoveJournal journal) {
+        int last = sow(pits, pit, side);
+
+        // A call through the interface would see every variant loaded in the process and stop
+        // being inlined; each built-in variant is a final class called from its own site instead
+        switch (variant) {
+            case KALAH:
+                return ((KalahRules) rules).finish(this, pits, last, side, journal);
+            case NO_CAPTURE:
+                return ((NoCaptureRules) rules).finish(this, pits, last, side, journal);
+            case OWARE:
+                return ((OwareRules) rules).finish(this, pits, last, side, journal);
+            case NO_SWEEP:
+                return ((NoSweepRules) rules).finish(this, pits, last, side, journal);
+            default:
+                return rules.finish(this, pits, last, side, journal);
+        }
+    }
+
+    /**
+     * Distributes the stones of a pit counter-clockwise, skipping the opponent's Mancala.
+     * @param pits the stones in every pit, updated in place
+     * @param pit the index of the pit to sow from
+     * @param side the side making the move
+     * @return the index of the pit that received the last stone
+     */
+    public int sow(int[] pits, int pit, int side) {
+        int stones = pits[pit];
+        pits[pit] = 0;
+
+        int[] order = sowRing;
+        int start = ringPos[pit * 2 + side];
+        int laps = stones < ring ? 0 : stones / ring; // Most moves sow less than a lap
+        int rem = stones - laps * ring;
+
+        if (laps > 0) {
+            for (int k = 1; k <= ring; k++) {
+                pits[order[start + k]] += laps;
+            }
+        }
+        for (int k = 1; k <= rem; k++) {
+            pits[order[start + k]]++;
+        }
+        // A whole number of laps ends back on the starting pit
+        return order[start + (rem == 0 ? ring : rem)];
+    }
+
+    /**
+     * Takes back the stones sown from a pit, the inverse of {@link #sow(int[], int, int)}.
+     * @param pits the stones in every pit, updated in place
+     * @param pit the index of the pit the stones were sown from
+     * @param stones the number of stones sown
+     * @param side the side that sowed them
+     */
+    public void unsow(int[] pits, int pit, int stones, int side) {
+        int[] order = sowRing;
+        int start = ringPos[pit * 2 + side];
+        int laps = stones < ring ? 0 : stones / ring; // Most moves sow less than a lap
+        int rem = stones - laps * ring;
+
+        if (laps > 0) {
+            for (int k = 1; k <= ring; k++) {
+                pits[order[start + k]] -= laps;
+            }
+        }
+        for (int k = 1; k <= rem; k++) {
+            pits[order[start + k]]--;
+        }
+        pits[pit] = stones;
+    }
+
+    /**
+     * Checks if the game has ended because all pits on one side are empty.
+     * @param pits the stones in every pit
+     * @return true if either side has no stones left outside its Mancala
+     */
+    public boolean isOver(int[] pits) {
+        return sideStones(pits, SIDE_A) == 0 | sideStones(pits, SIDE_B) == 0;
+    }
+
+    /**
+     * Returns the number of stones on a side, excluding its Mancala.
+     * @param pits the stones in every pit
+     * @param side a specified side
+     * @return the number of stones left to play on that side
+     */
+    public int sideStones(int[] pits, int side) {
+        int from = side * (pitsPerSide + 1);
+        int total = 0;
+        for (int i = from; i < from + pitsPerSide; i++) {
+            total += pits[i];
+        }
+        return total;
+    }
+
+    /**
+     * Fills every pit with a number of stones and empties both Mancalas.
+     * @param pits the stones in every pit, updated in place
+     * @param stones a specified number of stones per pit
+     */
+    public void setStones(int[] pits, int stones) {
+        for (int i = 0; i < pitCount; i++) {
+            pits[i] = isMancala(i) ? 0 : stones;
+        }
+    }
+
+    /**
+     * Returns the side to move after a move with the given result flags.
+     * @param side the side that moved
+     * @param flags the flags returned by {@link #move(int[], int, int)}
+     * @return the same side after a free move, otherwise the other side
+     */
+    public static int nextSide(int side, int flags) {
+        return side ^ (~flags & FREE_MOVE);
+    }
+
+    /**
+     * Checks if a side may sow from a pit.
+     * @param pits the stones in every pit
+     * @param pit a pit index
+     * @param side the side to move
+     * @return true if the pit belongs to that side, is not a Mancala and has stones
+     */
+    public boolean isLegal(int[] pits, int pit, int side) {
+        return pit >= 0 && pit < mover.length && mover[pit] == side && pits[pit] > 0;
+    }
+
+    /**
+     * Checks if a pit is a Mancala.
+     * @param pit a pit index
+     * @return true if the pit is one of the two Mancalas
+     */
+    public boolean isMancala(int pit) {
+        return pit == store[SIDE_A] || pit == store[SIDE_B];
+    }
+
+    /**
+     * Returns the side owning a pit.
+     * @param pit a pit index
+     * @return the side the pit belongs to
+     */
+    public int owner(int pit) {
+        return owner[pit];
+    }
+
+    /**
+     * Returns the index of the pit opposite to a pit.
+     * @param pit a pit index that is not a Mancala
+     * @return the index of the opposite pit
+     */
+    public int opposite(int pit) {
+        return opposite[pit];
+    }
+
+    /**
+     * Returns the Mancala of a side.
+     * @param side a specified side
+     * @return the index of that side's Mancala
+     */
+    public int store(int side) {
+        return store[side];
+    }
+
+    /**
+     * Returns the number of pits on each side, not counting the Mancalas.
+     * @return a pit count
+     */
+    public int getPitsPerSide() {
+        return pitsPerSide;
+    }
+
+    /**
+     * Returns the rule variant of the engine.
+     * @return a rule variant
+     */
+    public RuleVariant getRules() {
+        return rules;
+    }
+
+    /**
+     * Checks if the engine plays six pits per side with the Kalah rules, the game that the search,
+     * opening book and endgame database are built for.
+     * @return true for the standard game
+     */
+    public boolean isStandard() {
+        return pitsPerSide == STANDARD.pitsPerSide && rules instanceof KalahRules;
+    }
+
+    /**
+     * Returns the number of pits on the board, including both Mancalas.
+     * @return a pit count
+     */
+    public int getPitCount() {
+        return pitCount;
+    }
+
+    /**
+     * Moves the stones of a pit into the Mancala of a side.
+     * @param pits the stones in every pit, updated in place
+     * @param pit the index of the pit to empty
+     * @param side the side whose Mancala receives the stones
+     * @param journal records the stones moved, or null
+     */
+    public void collect(int[] pits, int pit, int side, MoveJournal journal) {
+        if (journal != null) journal.transfer(pit, pits[pit], store[side]);
+        pits[store[side]] += pits[pit];
+        pits[pit] = 0;
+    }
+
+    /**
+     * Moves all remaining stones into the Mancala of the side they are on.
+     * @param pits the stones in every pit, updated in place
+     * @param journal records the stones moved, or null
+     */
+    public void sweep(int[] pits, MoveJournal journal) {
+        for (int i = 0; i < pitCount; i++) {
+            if (!isMancala(i) && pits[i] > 0) {
+                collect(pits, i, owner[i], journal);
+            }
+        }
+    }
+}
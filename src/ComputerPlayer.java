@@ -0,0 +1,181 @@
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A computer opponent for the Mancala game.
+ * This class observes the model in the MVC (Model-View-Controller) architecture and, when it is
+ * the computer's turn, plays the opening book move or searches the position in the background,
+ * and notifies the model of its move.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class ComputerPlayer implements ChangeListener, MancalaController {
+    public final long THINK_MILLIS = 1000;
+    private final MancalaModel model;
+    private final Player player;
+    private final AlphaBetaSearch search;
+    private final OpeningBook book;
+    private final EndgameDatabase endgame;
+    private boolean enabled;
+    private boolean thinking;
+    private int selectedPit;
+    private SearchResult lastResult;
+
+    /**
+     * Constructs a computer player and registers it with a model.
+     * @param model a specified model
+     * @param player the player controlled by the computer
+     */
+    public ComputerPlayer(MancalaModel model, Player player) {
+        this.model = model;
+        this.player = player;
+        this.search = new AlphaBetaSearch();
+        this.endgame = loadEndgameDatabase();
+        this.search.setEndgameDatabase(endgame);
+        this.book = loadOpeningBook();
+        this.selectedPit = -1;
+        model.attach(this);
+    }
+
+    /**
+     * Starts a background search whenever it becomes the computer's turn.
+     * This method is part of the Observer pattern.
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        if (!isEnabled() || thinking) return;
+        if (model.getState() != GameState.PLAYING || model.getPlayer() != player) return;
+
+        int side = player == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+        final PositionSnapshot position = model.getSnapshot();
+        int bookMove = book == null ? -1 : book.bestMove(model.getPits(), side);
+        if (bookMove >= 0) {
+            // Play after the current notification has reached every observer
+            thinking = true;
+            SwingUtilities.invokeLater(() -> {
+                thinking = false;
+                if (isEnabled() && model.getPlayer() == player && position.equals(model.getSnapshot())) {
+                    selectedPit = bookMove;
+                    notifyModel();
+                }
+            });
+            return;
+        }
+
+        thinking = true;
+        new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                return search.search(position.toArray(), side, THINK_MILLIS, AlphaBetaSearch.MAX_DEPTH);
+            }
+
+            @Override
+            protected void done() {
+                thinking = false;
+                try {
+                    lastResult = get();
+                } catch (Exception ex) {
+                    return;
+                }
+                // Play only if the position has not changed while searching
+                if (isEnabled() && model.getState() == GameState.PLAYING && model.getPlayer() == player
+                        && position.equals(model.getSnapshot())) {
+                    selectedPit = lastResult.getBestPit();
+                    notifyModel();
+                }
+                else {
+                    stateChanged(e); // Search the new position instead
+                }
+            }
+        }.execute();
+    }
+
+    /** Notifies the model of the computer's move. */
+    @Override
+    public void notifyModel() {
+        if (model.playable(selectedPit)) {
+            model.move(selectedPit);
+        }
+    }
+
+    /**
+     * Returns true if the computer plays its moves.
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether the computer plays its moves.
+     * @param enabled true for a game against the computer
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the player controlled by the computer.
+     * @return a player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Opens the endgame database named by the {@code mancala.endgame} system property, if any.
+     * @return the database, or null if none is configured or readable
+     */
+    static EndgameDatabase loadEndgameDatabase() {
+        String file = System.getProperty("mancala.endgame");
+        if (file == null || !Files.isReadable(Path.of(file))) return null;
+        try {
+            return EndgameDatabase.open(Path.of(file));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Opens the opening book named by the {@code mancala.book} system property, if any.
+     * @return the book, or null if none is configured or readable
+     */
+    static OpeningBook loadOpeningBook() {
+        String file = System.getProperty("mancala.book");
+        if (file == null || !Files.isReadable(Path.of(file))) return null;
+        try {
+            return OpeningBook.open(Path.of(file));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the opening book the computer plays from.
+     * @return a book, or null if none is loaded
+     */
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    /**
+     * Returns the endgame database the computer searches with.
+     * @return a database, or null if none is loaded
+     */
+    public EndgameDatabase getEndgameDatabase() {
+        return endgame;
+    }
+
+    /**
+     * Returns the result of the latest search, including its nodes per second.
+     * @return a search result, or null before the first search
+     */
+    public SearchResult getLastResult() {
+        return lastResult;
+    }
+}
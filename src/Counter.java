@@ -0,0 +1,56 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named count of events, safe to increment from any thread.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class Counter implements CounterMBean {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Constructs a counter at zero.
+     * @param name the name of the counter
+     */
+    public Counter(String name) {
+        this.name = name;
+    }
+
+    /** Counts one event. */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Counts a number of events.
+     * @param events the number of events
+     */
+    public void add(long events) {
+        count.add(events);
+    }
+
+    /**
+     * Returns the number of events counted.
+     * @return a count
+     */
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    /** Sets the count back to zero. */
+    @Override
+    public void reset() {
+        count.reset();
+    }
+
+    /**
+     * Returns the name of the counter.
+     * @return a name
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * The management interface of a {@link Counter}, as seen through JMX.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public interface CounterMBean {
+
+    /**
+     * Returns the number of events counted.
+     * @return a count
+     */
+    long getCount();
+
+    /** Sets the count back to zero. */
+    void reset();
+}
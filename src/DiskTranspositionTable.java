@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A transposition table kept in a memory-mapped file, for searches too long or too large for the heap.
+ * Entries use the layout of {@link TranspositionTable} and the same lock-free scheme: each entry
+ * is a key exclusive-or'ed with its data followed by the data, so a torn write, whether from a
+ * concurrent searcher or from a crash while pages were written back, reads as a miss. The file
+ * can therefore be flushed at any time as a checkpoint and reopened later to resume a search.
+ * <p>
+ * The file holds a 64-byte header with the table size, the board geometry and the rule variant,
+ * so a table is only reopened for the game it was filled by, and the entries after it. The
+ * entries are mapped in chunks of 1 GiB, so a table may be larger than a single mapping and
+ * larger than the memory of the machine; the operating system pages it in and out.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class DiskTranspositionTable implements AutoCloseable {
+    public static final int MIN_SIZE_BITS = 10;
+    public static final int MAX_SIZE_BITS = 36;
+    private static final int MAGIC = 0x4D545442; // "MTTB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RULES_BYTES = 32;
+    private static final int ENTRY_BYTES = 16;
+    private static final int CHUNK_BITS = 26;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long mask;
+    private final int sizeBits;
+
+    private DiskTranspositionTable(FileChannel channel, MappedByteBuffer[] chunks, int sizeBits) {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.sizeBits = sizeBits;
+        this.mask = (1L << sizeBits) - 2; // Index of the first slot of a bucket
+    }
+
+    /**
+     * Opens a table file, creating an empty table if the file does not exist.
+     * @param file the table file
+     * @param sizeBits the log2 of the number of entries of a new table
+     * @param engine the board geometry and rule variant of the positions stored
+     * @return the table, mapped read-write
+     * @throws IOException if the file cannot be mapped or holds a table of another size or game
+     */
+    public static DiskTranspositionTable open(Path file, int sizeBits, BoardEngine engine) throws IOException {
+        if (sizeBits < MIN_SIZE_BITS || sizeBits > MAX_SIZE_BITS) {
+            throw new IllegalArgumentException("sizeBits must be between " + MIN_SIZE_BITS + " and " + MAX_SIZE_BITS);
+        }
+        byte[] rules = engine.getRules().getName().getBytes(StandardCharsets.US_ASCII);
+        if (rules.length > RULES_BYTES) {
+            throw new IllegalArgumentException("rule variant name too long: " + engine.getRules().getName());
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long entryBytes = (1L << sizeBits) * ENTRY_BYTES;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            if (header.getInt(0) == 0) {
+                header.putInt(4, VERSION).putInt(8, sizeBits).putInt(12, engine.getPitsPerSide());
+                header.put(16, rules);
+                header.putInt(0, MAGIC); // Written last, so a half-written header is recreated
+                header.force();
+            }
+            else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("not a transposition table: " + file);
+            }
+            else if (header.getInt(8) != sizeBits || header.getInt(12) != engine.getPitsPerSide()
+                    || !header.slice(16, RULES_BYTES).equals(ByteBuffer.allocate(RULES_BYTES).put(rules).clear())) {
+                throw new IOException("transposition table of another size or game: " + file);
+            }
+
+            long chunkBytes = (1L << Math.min(CHUNK_BITS, sizeBits)) * ENTRY_BYTES;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) (entryBytes / chunkBytes)];
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + c * chunkBytes, chunkBytes);
+            }
+            return new DiskTranspositionTable(channel, chunks, sizeBits);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Looks up a position.
+     * @param hash the hash of the position
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        long i = hash & mask;
+        MappedByteBuffer chunk = chunks[(int) (i >>> CHUNK_BITS)];
+        int offset = offset(i);
+        long d = chunk.getLong(offset + 8);
+        if ((chunk.getLong(offset) ^ d) == hash && d != 0) return d;
+        d = chunk.getLong(offset + ENTRY_BYTES + 8);
+        if ((chunk.getLong(offset + ENTRY_BYTES) ^ d) == hash && d != 0) return d;
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search. The first slot of a bucket keeps the entry with the larger
+     * depth, the second slot is always replaced.
+     * @param hash the hash of the position
+     * @param depth the size of the searched subtree, larger for more valuable entries
+     * @param bound {@link TranspositionTable#EXACT}, {@link TranspositionTable#LOWER}
+     *              or {@link TranspositionTable#UPPER}
+     * @param score the score from the mover's point of view
+     * @param move the best pit, or -1 if unknown
+     */
+    public void store(long hash, int depth, int bound, int score, int move) {
+        long d = TranspositionTable.pack(depth, bound, score, move, 0);
+        long i = hash & mask;
+        MappedByteBuffer chunk = chunks[(int) (i >>> CHUNK_BITS)];
+        int offset = offset(i);
+        long old = chunk.getLong(offset + 8);
+        boolean sameKey = (chunk.getLong(offset) ^ old) == hash;
+        if (old == 0 || sameKey || depth >= TranspositionTable.depth(old)) {
+            chunk.putLong(offset + 8, d);
+            chunk.putLong(offset, hash ^ d);
+        }
+        else {
+            chunk.putLong(offset + ENTRY_BYTES + 8, d);
+            chunk.putLong(offset + ENTRY_BYTES, hash ^ d);
+        }
+    }
+
+    /**
+     * Writes every changed entry back to the file, so the table survives the process.
+     * Searches may keep storing entries while the table is flushed.
+     */
+    public void flush() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Returns the number of entries of this table.
+     * @return a capacity
+     */
+    public long capacity() {
+        return 1L << sizeBits;
+    }
+
+    /**
+     * Flushes the table and closes its file. The mappings are released once they are unreachable.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private static int offset(long index) {
+        return (int) (index & (1L << CHUNK_BITS) - 1) * ENTRY_BYTES;
+    }
+}
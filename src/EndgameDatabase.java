@@ -0,0 +1,326 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An endgame database with the exact value of every position with few stones left.
+ * A position is the stones in the twelve playing pits plus the side to move; the Mancalas do
+ * not change how the rest of the game goes, so they are left out. The value of a position is
+ * the best difference the mover can still gain between the two Mancalas until the game ends.
+ * <p>
+ * Positions are indexed without gaps by stone count and then by their rank in the
+ * combinatorial number system, so the file holds one signed byte per position and a lookup
+ * is a single read from a memory-mapped file.
+ * <p>
+ * The generator solves positions by retrograde analysis. A move either puts a stone in a
+ * Mancala (fewer stones left) or moves stones toward the mover's Mancala on the mover's own
+ * side, which lowers the total distance of the stones to their Mancalas. Solving by increasing
+ * stone count and then increasing distance therefore always finds successors solved first.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class EndgameDatabase {
+    public static final int MAX_SUPPORTED_STONES = 20;
+    /** Returned by {@link #probe(int[], int)} for positions with too many stones. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int MAGIC = 0x4D454442; // "MEDB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int BINS = BoardEngine.MAX_PITS - 2;
+    // Board index of each playing pit
+    private static final int[] BIN_PIT = {0, 1, 2, 3, 4, 5, 7, 8, 9, 10, 11, 12};
+    // Distance of each playing pit to the Mancala of its side
+    private static final int[] BIN_DISTANCE = {6, 5, 4, 3, 2, 1, 6, 5, 4, 3, 2, 1};
+    private static final long[][] BINOMIAL = new long[MAX_SUPPORTED_STONES + BINS + 1][BINS + 1];
+
+    static {
+        for (int n = 0; n < BINOMIAL.length; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int r = 1; r <= Math.min(n, BINS); r++) {
+                BINOMIAL[n][r] = BINOMIAL[n - 1][r - 1] + (r <= n - 1 ? BINOMIAL[n - 1][r] : 0);
+            }
+        }
+    }
+
+    private final ByteBuffer values;
+    private final int maxStones;
+
+    private EndgameDatabase(ByteBuffer values, int maxStones) {
+        this.values = values;
+        this.maxStones = maxStones;
+    }
+
+    /**
+     * Opens a database file by memory-mapping it.
+     * @param file a file written by {@link #generate(int, Path)}
+     * @return the database
+     * @throws IOException if the file cannot be read or is not a database
+     */
+    public static EndgameDatabase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                throw new IOException("not an endgame database: " + file);
+            }
+            int maxStones = map.getInt(8);
+            if (maxStones < 0 || maxStones > MAX_SUPPORTED_STONES
+                    || map.capacity() != HEADER_BYTES + size(maxStones)) {
+                throw new IOException("corrupt endgame database: " + file);
+            }
+            return new EndgameDatabase(map.position(HEADER_BYTES).slice(), maxStones);
+        }
+    }
+
+    /**
+     * Solves every position with up to a number of stones and writes the database to a file.
+     * @param maxStones the largest number of stones left in the playing pits
+     * @param file the file to write
+     * @return the solved database, backed by memory
+     * @throws IOException if the file cannot be written
+     */
+    public static EndgameDatabase generate(int maxStones, Path file) throws IOException {
+        if (maxStones < 0 || maxStones > MAX_SUPPORTED_STONES) {
+            throw new IllegalArgumentException("maxStones must be between 0 and " + MAX_SUPPORTED_STONES);
+        }
+        EndgameDatabase db = new EndgameDatabase(ByteBuffer.allocate(size(maxStones)), maxStones);
+        db.solve();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(maxStones).putInt(0).flip();
+            channel.write(header);
+            ByteBuffer body = db.values.duplicate().clear();
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+        return db;
+    }
+
+    /**
+     * Returns the largest number of stones covered by this database.
+     * @return a stone count
+     */
+    public int getMaxStones() {
+        return maxStones;
+    }
+
+    /**
+     * Checks if a position is in this database.
+     * @param pits the stones in every pit
+     * @return true if the stones left in the playing pits do not exceed the maximum
+     */
+    public boolean covers(int[] pits) {
+        return stonesInPlay(pits) <= maxStones;
+    }
+
+    /**
+     * Returns the exact value of a position.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @return the best Mancala difference the mover can still gain until the game ends
+     * @throws IllegalArgumentException if the position is not covered
+     */
+    public int lookup(int[] pits, int side) {
+        int stones = stonesInPlay(pits);
+        if (stones > maxStones) {
+            throw new IllegalArgumentException("position has " + stones + " stones, database covers " + maxStones);
+        }
+        return values.get(index(pits, stones, side));
+    }
+
+    /**
+     * Returns the exact value of a position if it is covered.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @return the value as in {@link #lookup(int[], int)}, or {@link #UNKNOWN}
+     */
+    public int probe(int[] pits, int side) {
+        int stones = stonesInPlay(pits);
+        return stones > maxStones ? UNKNOWN : values.get(index(pits, stones, side));
+    }
+
+    /**
+     * Returns the best pit of a covered position.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @return the pit with the best exact value, or -1 if there is no legal move
+     *         or the position is not covered
+     */
+    public int bestMove(int[] pits, int side) {
+        if (!covers(pits)) return -1;
+        int[] child = new int[BoardEngine.MAX_PITS];
+        int bestPit = -1;
+        int best = Integer.MIN_VALUE;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            if (!BoardEngine.STANDARD.isLegal(pits, pit, side)) continue;
+            int value = moveValue(pits, pit, side, child);
+            if (value > best) {
+                best = value;
+                bestPit = pit;
+            }
+        }
+        return bestPit;
+    }
+
+    /**
+     * Generates a database file.
+     * Usage: {@code java EndgameDatabase [maxStones] [file]}
+     * @param args optional maximum number of stones and output file
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int maxStones = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        Path file = Path.of(args.length > 1 ? args[1] : "endgame.db");
+        long start = System.nanoTime();
+        generate(maxStones, file);
+        System.out.printf("%d positions up to %d stones solved in %.1f s, written to %s%n",
+                size(maxStones), maxStones, (System.nanoTime() - start) / 1e9, file);
+    }
+
+    /**
+     * Solves every position in order of stone count and then distance to the Mancalas.
+     */
+    private void solve() {
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        int[] child = new int[BoardEngine.MAX_PITS];
+
+        for (int stones = 0; stones <= maxStones; stones++) {
+            int count = (int) compositions(stones);
+            int maxDistance = stones * 6;
+
+            // Counting sort of the positions by total distance
+            byte[] distance = new byte[count];
+            int[] start = new int[maxDistance + 2];
+            for (int rank = 0; rank < count; rank++) {
+                unrank(rank, stones, pits);
+                int d = 0;
+                for (int bin = 0; bin < BINS; bin++) {
+                    d += pits[BIN_PIT[bin]] * BIN_DISTANCE[bin];
+                }
+                distance[rank] = (byte) d;
+                start[d + 1]++;
+            }
+            for (int d = 1; d < start.length; d++) {
+                start[d] += start[d - 1];
+            }
+            int[] order = new int[count];
+            for (int rank = 0; rank < count; rank++) {
+                order[start[distance[rank] & 0xFF]++] = rank;
+            }
+
+            int offset = (int) offset(stones);
+            for (int rank : order) {
+                unrank(rank, stones, pits);
+                for (int side = BoardEngine.SIDE_A; side <= BoardEngine.SIDE_B; side++) {
+                    values.put(2 * (offset + rank) + side, (byte) solvePosition(pits, side, child));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a position whose successors are already solved.
+     */
+    private int solvePosition(int[] pits, int side, int[] child) {
+        // A side without stones ends the game: the rest is swept to the Mancalas
+        if (BoardEngine.STANDARD.isOver(pits)) {
+            return BoardEngine.STANDARD.sideStones(pits, side) - BoardEngine.STANDARD.sideStones(pits, side ^ 1);
+        }
+        int best = Integer.MIN_VALUE;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            if (BoardEngine.STANDARD.isLegal(pits, pit, side)) {
+                best = Math.max(best, moveValue(pits, pit, side, child));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the exact value of playing a pit, looking up the position it leads to.
+     */
+    private int moveValue(int[] pits, int pit, int side, int[] child) {
+        System.arraycopy(pits, 0, child, 0, BoardEngine.MAX_PITS);
+        child[BoardEngine.PLAYER_A_PIT] = 0;
+        child[BoardEngine.PLAYER_B_PIT] = 0;
+        int flags = BoardEngine.STANDARD.move(child, pit, side);
+        int gain = child[BoardEngine.STANDARD.store(side)] - child[BoardEngine.STANDARD.store(side ^ 1)];
+
+        if ((flags & BoardEngine.GAME_OVER) != 0) return gain;
+        int stones = stonesInPlay(child);
+        if ((flags & BoardEngine.FREE_MOVE) != 0) {
+            return gain + values.get(index(child, stones, side));
+        }
+        return gain - values.get(index(child, stones, side ^ 1));
+    }
+
+    /**
+     * Returns the index of a position: positions with fewer stones first,
+     * then the rank of the stone distribution, then the side to move.
+     */
+    private static int index(int[] pits, int stones, int side) {
+        long rank = 0;
+        int remaining = stones;
+        for (int bin = 0; bin < BINS - 1; bin++) {
+            int bins = BINS - bin;
+            int v = pits[BIN_PIT[bin]];
+            // Distributions with a smaller value in this bin come first
+            rank += BINOMIAL[remaining + bins - 1][bins - 1] - BINOMIAL[remaining - v + bins - 1][bins - 1];
+            remaining -= v;
+        }
+        return (int) (2 * (offset(stones) + rank) + side);
+    }
+
+    /**
+     * Writes the stone distribution with a rank into the playing pits.
+     */
+    private static void unrank(long rank, int stones, int[] pits) {
+        int remaining = stones;
+        for (int bin = 0; bin < BINS - 1; bin++) {
+            int bins = BINS - bin;
+            int v = 0;
+            long c = BINOMIAL[remaining + bins - 2][bins - 2];
+            while (rank >= c) {
+                rank -= c;
+                v++;
+                c = BINOMIAL[remaining - v + bins - 2][bins - 2];
+            }
+            pits[BIN_PIT[bin]] = v;
+            remaining -= v;
+        }
+        pits[BIN_PIT[BINS - 1]] = remaining;
+    }
+
+    /**
+     * Returns the number of ways to distribute stones over the playing pits.
+     */
+    private static long compositions(int stones) {
+        return BINOMIAL[stones + BINS - 1][BINS - 1];
+    }
+
+    /**
+     * Returns the number of distributions with fewer stones.
+     */
+    private static long offset(int stones) {
+        return stones == 0 ? 0 : BINOMIAL[stones + BINS - 1][BINS];
+    }
+
+    /**
+     * Returns the number of bytes needed for all positions up to a number of stones.
+     */
+    private static int size(int maxStones) {
+        return (int) (2 * offset(maxStones + 1));
+    }
+
+    /**
+     * Returns the number of stones in the playing pits.
+     */
+    private static int stonesInPlay(int[] pits) {
+        return BoardEngine.STANDARD.sideStones(pits, BoardEngine.SIDE_A) + BoardEngine.STANDARD.sideStones(pits, BoardEngine.SIDE_B);
+    }
+}
@@ -1,6 +1,5 @@
 import java.awt.*;
 import java.awt.geom.*;
-import java.net.URL;
 
 /**
  * A concrete strategy class to format the board.
@@ -10,6 +9,9 @@ import java.net.URL;
  * @version 1.0 12/05/2024
  */
 public class FloweryFormat implements FormatStrategy {
+    private static final Color COLOR = new Color(44, 62, 80);
+    private static final Font FONT = new Font("Roboto", Font.BOLD, 24);
+
     /**
      * Sets the ellipse shape for a stone pit.
      * @param s a stone pit shape
@@ -25,7 +27,7 @@ public class FloweryFormat implements FormatStrategy {
      */
     @Override
     public Color getColor() {
-        return new Color(44, 62, 80);
+        return COLOR;
     }
 
     /**
@@ -34,17 +36,15 @@ public class FloweryFormat implements FormatStrategy {
      */
     @Override
     public Font getFont() {
-        return new Font("Roboto", Font.BOLD, 24);
+        return FONT;
     }
 
     /**
-     * Returns the flowery background image to draw.
+     * Returns the flowery background image to draw, decoded once and cached.
      * @return a flowery image
      */
     @Override
     public Image backgroundImg() {
-        URL imgURL = this.getClass().getResource("/board1.jpg");
-        Image img = Toolkit.getDefaultToolkit().getImage(imgURL);
-        return img;
+        return FormatAssets.background(this, "/board1.jpg");
     }
 }
\ No newline at end of file
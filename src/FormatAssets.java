@@ -0,0 +1,103 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of the decoded images used by the board formats.
+ * Each background is read once and copied into an image compatible with the screen, so the
+ * Java 2D pipeline can keep it in accelerated memory and draw it without conversion. Images are
+ * keyed by format and size, can be preloaded on a background thread at startup, and are evicted
+ * when a format is no longer in use.
+ *
+ * @author Anthony Warsah Liu
+ * @version 1.0 12/05/2024
+ */
+public final class FormatAssets {
+    private static final int NATIVE_SIZE = -1;
+    private static final Map<Class<?>, Map<Long, Image>> CACHE = new ConcurrentHashMap<>();
+
+    private FormatAssets() {
+    }
+
+    /**
+     * Returns the background of a format at the size of the image resource.
+     * @param format the format using the image
+     * @param resource the class path of the image
+     * @return the decoded image
+     */
+    public static Image background(FormatStrategy format, String resource) {
+        return background(format, resource, NATIVE_SIZE, NATIVE_SIZE);
+    }
+
+    /**
+     * Returns the background of a format scaled to a size.
+     * @param format the format using the image
+     * @param resource the class path of the image
+     * @param width the width of the image, or -1 for the resource width
+     * @param height the height of the image, or -1 for the resource height
+     * @return the decoded image
+     */
+    public static Image background(FormatStrategy format, String resource, int width, int height) {
+        Map<Long, Image> sizes = CACHE.computeIfAbsent(format.getClass(), k -> new ConcurrentHashMap<>());
+        return sizes.computeIfAbsent((long) width << 32 | (height & 0xFFFFFFFFL), k -> decode(resource, width, height));
+    }
+
+    /**
+     * Decodes the backgrounds of some formats on a background thread.
+     * @param formats the formats to preload
+     */
+    public static void preload(FormatStrategy... formats) {
+        Thread loader = new Thread(() -> {
+            for (FormatStrategy format : formats) {
+                format.backgroundImg();
+            }
+        }, "format-assets");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Removes every cached image of a format.
+     * @param format a format that is no longer in use
+     */
+    public static void evict(FormatStrategy format) {
+        CACHE.remove(format.getClass());
+    }
+
+    /**
+     * Reads an image resource and copies it into a screen-compatible image.
+     */
+    private static Image decode(String resource, int width, int height) {
+        URL url = FormatAssets.class.getResource(resource);
+        BufferedImage source;
+        try {
+            source = url == null ? null : ImageIO.read(url);
+        } catch (IOException e) {
+            source = null;
+        }
+        if (source == null) {
+            // Fall back to the toolkit, which loads asynchronously and paints once ready
+            return url == null ? null : Toolkit.getDefaultToolkit().getImage(url);
+        }
+
+        int w = width == NATIVE_SIZE ? source.getWidth() : width;
+        int h = height == NATIVE_SIZE ? source.getHeight() : height;
+        BufferedImage image;
+        if (GraphicsEnvironment.isHeadless()) {
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+        else {
+            image = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(w, h, Transparency.OPAQUE);
+        }
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, w, h, null);
+        g.dispose();
+        return image;
+    }
+}
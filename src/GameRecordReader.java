@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A streaming reader of game records written by {@link GameRecordWriter}.
+ * The file is read in large blocks and every game is passed to a {@link GameRecordVisitor}
+ * move by move. Only the moves of the current game are held, in a reused buffer, so files of
+ * any size are scanned in constant memory.
+ * Usage: {@code java GameRecordReader file}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class GameRecordReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private byte[] moves;
+
+    /**
+     * Opens a record file.
+     * @param file the record file
+     * @throws IOException if the file cannot be opened or is not a record file
+     */
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_SIZE);
+        moves = new byte[256];
+        try {
+            readHeader(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every game from the start of the file.
+     * A game cut off at the end of the file, as left by an interrupted writer, is not visited.
+     * @param visitor receives the games
+     * @return the number of games read
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    public long scan(GameRecordVisitor visitor) throws IOException {
+        channel.position(GameRecordWriter.HEADER_SIZE);
+        buffer.clear().flip();
+        long games = 0;
+        int stones;
+        while ((stones = next()) >= 0) {
+            // Collect the moves first so that a truncated game is never visited
+            int length = 0;
+            int b;
+            while ((b = next()) != GameRecordWriter.END_OF_GAME) {
+                if (b < 0) return games;
+                if ((b & 0x0F) >= BoardEngine.MAX_PITS || b > 0x7F) {
+                    throw new IOException("corrupt move byte in game " + games);
+                }
+                if (length == moves.length) moves = Arrays.copyOf(moves, length * 2);
+                moves[length++] = (byte) b;
+            }
+
+            visitor.beginGame(stones);
+            for (int i = 0; i < length; i++) {
+                visitor.move(moves[i] & 0x0F, moves[i] >>> GameRecordWriter.FLAG_SHIFT);
+            }
+            visitor.endGame();
+            games++;
+        }
+        return games;
+    }
+
+    /** Closes the file. */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads and checks the header of a record file.
+     * @param channel a channel positioned anywhere in the file
+     * @throws IOException if the file is not a record file of a supported version
+     */
+    static void readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("not a game record file");
+            }
+        }
+        header.flip();
+        if (header.getInt() != GameRecordWriter.MAGIC) {
+            throw new IOException("not a game record file");
+        }
+        int version = header.get();
+        if (version != GameRecordWriter.VERSION) {
+            throw new IOException("unsupported game record version " + version);
+        }
+    }
+
+    /**
+     * Returns the next byte of the file, or -1 at the end.
+     */
+    private int next() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip();
+            if (n < 0) return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Scans a record file, replays every game with {@link BoardEngine} to check the recorded
+     * flags, and prints the number of games and the scan speed.
+     * @param args the record file
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args.length > 0 ? args[0] : "games.rec");
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        long[] moveCount = new long[1];
+        long[] mismatches = new long[1];
+        GameRecordVisitor replay = new GameRecordVisitor() {
+            private int side;
+
+            @Override
+            public void beginGame(int stones) {
+                BoardEngine.STANDARD.setStones(pits, stones);
+                side = BoardEngine.SIDE_A;
+            }
+
+            @Override
+            public void move(int pit, int flags) {
+                int played = BoardEngine.STANDARD.isLegal(pits, pit, side) ? BoardEngine.STANDARD.move(pits, pit, side) : -1;
+                if (played != flags) mismatches[0]++;
+                side = BoardEngine.nextSide(side, flags);
+                moveCount[0]++;
+            }
+
+            @Override
+            public void endGame() {
+            }
+        };
+
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            long start = System.nanoTime();
+            long games = reader.scan(replay);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long bytes = reader.channel.size();
+            System.out.printf("%,d games, %,d moves, %,d bytes in %.2f s (%,.0f games/s, %.1f MB/s), %,d mismatches%n",
+                    games, moveCount[0], bytes, seconds, games / seconds, bytes / seconds / 1e6, mismatches[0]);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Receives the games of a record file as they are read, one move at a time.
+ * See {@link GameRecordReader}.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public interface GameRecordVisitor {
+    /**
+     * Starts a game.
+     * @param stones the starting number of stones per pit
+     */
+    void beginGame(int stones);
+
+    /**
+     * Receives the next move of the current game.
+     * @param pit the pit the move was sown from
+     * @param flags the {@link BoardEngine} result flags of the move
+     */
+    void move(int pit, int flags);
+
+    /** Ends the current game. */
+    void endGame();
+}
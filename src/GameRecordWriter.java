@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A streaming writer of game records.
+ * A record file starts with an 8-byte header: the magic {@code MNCR}, a version byte and
+ * three reserved bytes. Every game follows as one byte with the starting stones per pit, one byte
+ * per move and an end marker {@code 0xFF}. A move byte holds the pit in bits 0-3 and the
+ * {@link BoardEngine} result flags in bits 4-6: free move, capture and game over.
+ * Records hold games of the standard board with the Kalah rules, the only board whose pits fit
+ * in a move byte; other moves are rejected rather than written as another pit.
+ * A typical game takes about 34 bytes. Games are buffered and appended to the file channel
+ * in large writes, so millions of games can be written without holding them in memory.
+ * Opening an existing file appends to it, after dropping a game left unfinished at its end.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class GameRecordWriter implements AutoCloseable {
+    public static final int MAGIC = 0x4D4E4352; // "MNCR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int END_OF_GAME = 0xFF;
+    public static final int FLAG_SHIFT = 4;
+    private static final int MAX_FLAGS = BoardEngine.FREE_MOVE | BoardEngine.CAPTURE | BoardEngine.GAME_OVER;
+    static final int BUFFER_SIZE = 1 << 16;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private boolean inGame;
+    private long games;
+
+    /**
+     * Opens a record file for appending, creating it with a header if it is empty.
+     * @param file the record file
+     * @throws IOException if the file cannot be opened or is not a record file
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try {
+            if (channel.size() == 0) {
+                buffer.putInt(MAGIC).put((byte) VERSION).put(new byte[3]);
+            }
+            else {
+                GameRecordReader.readHeader(channel);
+                truncateIncompleteGame();
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a game.
+     * @param stones the starting number of stones per pit, as passed to {@link MancalaModel#setStones(int)}
+     */
+    public void beginGame(int stones) throws IOException {
+        if (inGame) {
+            throw new IllegalStateException("the previous game has not ended");
+        }
+        if (stones < 0 || stones >= END_OF_GAME) {
+            throw new IllegalArgumentException("stones out of range: " + stones);
+        }
+        inGame = true;
+        put(stones);
+    }
+
+    /**
+     * Writes the next move of the current game.
+     * @param pit the pit the move was sown from, on the standard board
+     * @param flags the result flags returned by {@link BoardEngine#move(int[], int, int)}
+     * @throws IllegalArgumentException if the pit is not on the standard board or the flags are unknown
+     */
+    public void move(int pit, int flags) throws IOException {
+        if (!inGame) {
+            throw new IllegalStateException("no game in progress");
+        }
+        if (pit < 0 || pit >= BoardEngine.MAX_PITS) {
+            throw new IllegalArgumentException("pit out of range: " + pit);
+        }
+        if ((flags & ~MAX_FLAGS) != 0) {
+            throw new IllegalArgumentException("unknown flags: " + flags);
+        }
+        put(pit | flags << FLAG_SHIFT);
+    }
+
+    /** Ends the current game. */
+    public void endGame() throws IOException {
+        if (!inGame) {
+            throw new IllegalStateException("no game in progress");
+        }
+        inGame = false;
+        games++;
+        put(END_OF_GAME);
+    }
+
+    /**
+     * Writes a whole game at once.
+     * @param stones the starting number of stones per pit
+     * @param moves the move bytes, each {@code pit | flags << FLAG_SHIFT}
+     * @param length the number of moves
+     * @throws IllegalArgumentException if a move byte is not a move of the standard board,
+     *                                  in which case nothing is written
+     */
+    public void writeGame(int stones, byte[] moves, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            if ((moves[i] & 0x0F) >= BoardEngine.MAX_PITS || moves[i] < 0) {
+                throw new IllegalArgumentException("invalid move byte at move " + i + ": " + (moves[i] & 0xFF));
+            }
+        }
+        beginGame(stones);
+        for (int i = 0; i < length; i++) {
+            put(moves[i]);
+        }
+        endGame();
+    }
+
+    /**
+     * Returns the number of games written by this writer.
+     * @return a game count
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /** Writes the buffered games to the file. */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Flushes the buffered games and closes the file. */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Cuts off a game left unfinished at the end of the file by an interrupted writer.
+     */
+    private void truncateIncompleteGame() throws IOException {
+        long end = channel.size();
+        while (end > HEADER_SIZE) {
+            int length = (int) Math.min(BUFFER_SIZE, end - HEADER_SIZE);
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                channel.read(buffer, end - length + buffer.position());
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if ((buffer.get(i) & 0xFF) == END_OF_GAME) {
+                    channel.truncate(end - length + i + 1);
+                    buffer.clear();
+                    return;
+                }
+            }
+            end -= length;
+        }
+        channel.truncate(HEADER_SIZE);
+        buffer.clear();
+    }
+
+    private void put(int b) throws IOException {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put((byte) b);
+    }
+}
@@ -0,0 +1,209 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A headless server hosting many independent games of Mancala over TCP.
+ * Every connection has its own {@link GameSession} and its own thread. The protocol is line based;
+ * each request gets one response line, {@code OK <game>} or {@code ERR <reason>}, where the game is
+ * described by {@link GameSession#toString()}.
+ * <ul>
+ *   <li>{@code NEW <stones>} sets the stones and starts a new game</li>
+ *   <li>{@code MOVE <pit>} plays a move for the current player</li>
+ *   <li>{@code UNDO} reverts the last move</li>
+ *   <li>{@code REDO} plays the last undone move again</li>
+ *   <li>{@code STATE} reports the game</li>
+ *   <li>{@code QUIT} closes the connection</li>
+ * </ul>
+ * Usage: {@code java GameServer [port]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class GameServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7070;
+    public static final int MAX_STONES = 20;
+    private static final int BACKLOG = 4096;
+    private static final long PLATFORM_STACK_SIZE = 256 * 1024;
+    private static final long MIN_ACCEPT_BACKOFF_MILLIS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final AtomicInteger sessions;
+    private final Thread acceptor;
+
+    /**
+     * Constructs a server listening on the loopback address.
+     * @param port a port number, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        connections = newConnectionExecutor();
+        sessions = new AtomicInteger();
+        acceptor = new Thread(this::accept, "mancala-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    /** Starts accepting connections. */
+    public void start() {
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return a port number
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of open sessions.
+     * @return a session count
+     */
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    /** Stops accepting connections and closes the open ones. */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * Applies one request line to a session.
+     * @param session the session of the connection
+     * @param line a request
+     * @return the response line, or null to close the connection
+     */
+    static String handle(GameSession session, String line) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "NEW":
+                    int stones = words.length > 1 ? Integer.parseInt(words[1]) : 4;
+                    if (stones < 1 || stones > MAX_STONES) return "ERR stones out of range";
+                    session.setStones(stones);
+                    session.startNewGame();
+                    return "OK " + session;
+                case "MOVE":
+                    if (words.length < 2) return "ERR missing pit";
+                    int pit = Integer.parseInt(words[1]);
+                    if (!session.playable(pit)) return "ERR illegal move";
+                    session.move(pit);
+                    return "OK " + session;
+                case "UNDO":
+                    return session.undoMove() ? "OK " + session : "ERR cannot undo";
+                case "REDO":
+                    return session.redoMove() ? "OK " + session : "ERR cannot redo";
+                case "STATE":
+                    return "OK " + session;
+                case "QUIT":
+                    return null;
+                default:
+                    return "ERR unknown command";
+            }
+        } catch (NumberFormatException e) {
+            return "ERR not a number";
+        }
+    }
+
+    /**
+     * Accepts connections until the server socket is closed. When accepting fails while the socket
+     * is open, the error is logged and the next attempt waits, twice as long after each failure.
+     */
+    private void accept() {
+        long backoff = MIN_ACCEPT_BACKOFF_MILLIS;
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+                backoff = MIN_ACCEPT_BACKOFF_MILLIS;
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) return;
+
+                // Out of file descriptors, for example: wait for connections to close before retrying
+                System.err.println("accept failed, retrying in " + backoff + " ms: " + e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(2 * backoff, MAX_ACCEPT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Runs the session of one connection.
+     */
+    private void serve(Socket socket) {
+        sessions.incrementAndGet();
+        GameSession session = new GameSession();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+            socket.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null) {
+                String response = handle(session, line);
+                if (response == null) break;
+                out.write(response);
+                out.write('\n');
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // The client went away
+        } catch (IOException e) {
+            System.err.println("connection failed: " + e.getMessage());
+        } finally {
+            sessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns an executor running every connection on its own virtual thread when the runtime
+     * supports them, and otherwise on its own platform thread with a small stack.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(null, r, "mancala-connection", PLATFORM_STACK_SIZE);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     * @param args an optional port number
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(port);
+        server.start();
+        System.out.println("Mancala server listening on port " + server.getPort());
+        server.acceptor.join();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * A compact, headless game of Mancala for the game server.
+ * A session holds only the board and the turn and undo state, and plays moves with
+ * {@link BoardEngine}. Moves, undo and new games follow the same rules as {@link MancalaModel}
+ * but no observers, formats or Swing classes are involved.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class GameSession {
+    public static final int MAX_UNDO = 3;
+    public static final int MAX_HISTORY = 512;
+    private final int[] pits;
+    private final MoveJournal journal;
+    private int side;
+    private GameState state;
+    private boolean lastStone;
+    private int undoCountA;
+    private int undoCountB;
+
+    /** Constructs a session that has not started a game. */
+    public GameSession() {
+        pits = new int[BoardEngine.MAX_PITS];
+        journal = new MoveJournal(MAX_HISTORY);
+        state = GameState.BEGIN;
+        side = BoardEngine.SIDE_A;
+    }
+
+    /**
+     * Sets the initial number of stones in each pit, as {@link MancalaModel#setStones(int)} does.
+     * @param stones a specified number of stones
+     */
+    public void setStones(int stones) {
+        BoardEngine.STANDARD.setStones(pits, stones);
+        journal.clear();
+    }
+
+    /**
+     * Starts a new game with player A to move and no undo history.
+     */
+    public void startNewGame() {
+        side = BoardEngine.SIDE_A;
+        lastStone = false;
+        journal.clear();
+        undoCountA = 0;
+        undoCountB = 0;
+        state = GameState.PLAYING;
+    }
+
+    /**
+     * Determines if the current player may sow from a pit.
+     * @param pit a specified pit
+     * @return true if the pit is legal to select
+     */
+    public boolean playable(int pit) {
+        return state == GameState.PLAYING && BoardEngine.STANDARD.isLegal(pits, pit, side);
+    }
+
+    /**
+     * Executes a move from a playable pit and updates the game state.
+     * @param pit an index of the selected pit
+     */
+    public void move(int pit) {
+        if (!lastStone) {
+            if (side == BoardEngine.SIDE_A) undoCountA = 0;
+            else undoCountB = 0;
+        }
+
+        int flags = journal.record(pits, pit, side);
+        lastStone = (flags & BoardEngine.FREE_MOVE) != 0;
+        side = BoardEngine.nextSide(side, flags);
+        if ((flags & BoardEngine.GAME_OVER) != 0) {
+            state = GameState.COMPLETE;
+        }
+    }
+
+    /**
+     * Reverts the last move on the board if undo is allowed, as {@link MancalaModel#undoMove()} does.
+     * @return true if the move was reverted
+     */
+    public boolean undoMove() {
+        if (!journal.canUndo() || undoCountA >= MAX_UNDO || undoCountB >= MAX_UNDO) {
+            return false;
+        }
+        side = journal.undo(pits);
+        lastStone = (journal.getLastFlags() & BoardEngine.FREE_MOVE) != 0;
+        if (state == GameState.COMPLETE) {
+            state = GameState.PLAYING;
+        }
+        // The count of the player who did not move is charged, as in the model
+        if (side == BoardEngine.SIDE_A) undoCountB++;
+        else undoCountA++;
+        return true;
+    }
+
+    /**
+     * Plays again the last undone move, as {@link MancalaModel#redoMove()} does.
+     * @return true if the move was played
+     */
+    public boolean redoMove() {
+        if (!journal.canRedo()) {
+            return false;
+        }
+        int flags = journal.redo(pits);
+        lastStone = (flags & BoardEngine.FREE_MOVE) != 0;
+        side = BoardEngine.nextSide(journal.getLastSide(), flags);
+        if ((flags & BoardEngine.GAME_OVER) != 0) {
+            state = GameState.COMPLETE;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the stones in all pits.
+     * @return an array of stones, not to be modified
+     */
+    public int[] getPits() {
+        return pits;
+    }
+
+    /**
+     * Returns the current player.
+     * @return a player
+     */
+    public Player getPlayer() {
+        return side == BoardEngine.SIDE_A ? Player.A : Player.B;
+    }
+
+    /**
+     * Returns the state of this game.
+     * @return a game state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Describes the game as the server reports it: the state, the current player
+     * and the stones in every pit, separated by spaces.
+     * @return a one-line description
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(state).append(' ').append(getPlayer());
+        for (int stones : pits) {
+            sb.append(' ').append(stones);
+        }
+        return sb.toString();
+    }
+}
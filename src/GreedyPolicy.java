@@ -0,0 +1,42 @@
+import java.util.SplittableRandom;
+
+/**
+ * A concrete policy that plays the pit gaining the most for its Mancala right away,
+ * counting a free move as one extra stone and breaking ties at random.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class GreedyPolicy implements Policy {
+    private final int[] child = new int[BoardEngine.MAX_PITS];
+
+    /**
+     * Chooses the pit with the best immediate gain.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @param random a random source
+     * @return a legal pit index
+     */
+    @Override
+    public int choose(int[] pits, int side, SplittableRandom random) {
+        int chosen = -1;
+        int best = Integer.MIN_VALUE;
+        int ties = 0;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            if (!BoardEngine.STANDARD.isLegal(pits, pit, side)) continue;
+            System.arraycopy(pits, 0, child, 0, BoardEngine.MAX_PITS);
+            int flags = BoardEngine.STANDARD.move(child, pit, side);
+            int gain = AlphaBetaSearch.evaluate(child, side) + (flags & BoardEngine.FREE_MOVE);
+
+            if (gain > best) {
+                best = gain;
+                chosen = pit;
+                ties = 1;
+            }
+            else if (gain == best && random.nextInt(++ties) == 0) {
+                chosen = pit;
+            }
+        }
+        return chosen;
+    }
+}
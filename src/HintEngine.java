@@ -0,0 +1,170 @@
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A background service that ponders the position while a player is thinking and keeps a
+ * best move hint ready for it.
+ * This class observes the model in the MVC (Model-View-Controller) architecture. Whenever the
+ * model notifies a change in a game being played, the search of the previous position is
+ * cancelled and the new position is pondered on a background thread: the opening book move if
+ * the position is in the book, the exact move if it is in the endgame database, and otherwise
+ * the best move of each search depth as it completes. All searches share one transposition
+ * table, so the lines pondered before a move or an undo speed up the search after it.
+ * Observers of the hint engine are notified on the event dispatch thread whenever the hint
+ * changes. The computer opponent's turns are left to the computer player.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class HintEngine implements ChangeListener, AutoCloseable {
+    public final long PONDER_MILLIS = 30_000;
+    private final MancalaModel model;
+    private final ComputerPlayer opponent;
+    private final TranspositionTable table;
+    private final ExecutorService worker;
+    private final AtomicReference<AtomicBoolean> pondering;
+    private final ArrayList<ChangeListener> listeners;
+    private PositionSnapshot pondered;
+    private volatile Hint hint;
+
+    /**
+     * Constructs a hint engine and registers it with a model.
+     * @param model a specified model
+     * @param opponent the computer opponent, whose book and endgame database are used and whose
+     *                 turns are not pondered while it is enabled
+     */
+    public HintEngine(MancalaModel model, ComputerPlayer opponent) {
+        this.model = model;
+        this.opponent = opponent;
+        this.table = new TranspositionTable(20);
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "mancala-hint");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY); // Yield to the event dispatch thread and the computer player
+            return t;
+        });
+        this.pondering = new AtomicReference<>(new AtomicBoolean());
+        this.listeners = new ArrayList<>();
+        model.attach(this);
+    }
+
+    /**
+     * Cancels the pondering of the previous position and starts pondering the new one.
+     * This method is part of the Observer pattern.
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        PositionSnapshot position = model.getSnapshot();
+        if (position.equals(pondered)) return; // Only the format changed
+        pondered = position;
+
+        AtomicBoolean stop = new AtomicBoolean();
+        pondering.getAndSet(stop).set(true);
+        if (position.getState() != GameState.PLAYING || !model.getEngine().isStandard()) return;
+        if (opponent.isEnabled() && position.getPlayer() == opponent.getPlayer()) return;
+        worker.execute(() -> ponder(position, stop));
+    }
+
+    /**
+     * Returns the best move found so far for the current position, without waiting.
+     * @return a pit index, or -1 if no move has been found for the current position yet
+     */
+    public int getHint() {
+        Hint h = hint;
+        return h != null && h.position.equals(model.getSnapshot()) ? h.pit : -1;
+    }
+
+    /**
+     * Returns the depth of the search behind the current hint.
+     * @return a depth in plies, {@link AlphaBetaSearch#MAX_DEPTH} for a book or database move,
+     * or 0 if there is no hint for the current position
+     */
+    public int getHintDepth() {
+        Hint h = hint;
+        return h != null && h.position.equals(model.getSnapshot()) ? h.depth : 0;
+    }
+
+    /**
+     * Attaches an observer notified on the event dispatch thread when the hint changes.
+     * @param listener a specified observer
+     */
+    public void attach(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Stops pondering and the background thread. */
+    @Override
+    public void close() {
+        pondering.get().set(true);
+        worker.shutdownNow();
+    }
+
+    /**
+     * Finds the best move of a position, publishing a better hint as each source or depth completes.
+     */
+    private void ponder(PositionSnapshot position, AtomicBoolean stop) {
+        if (stop.get()) return;
+        int[] pits = position.toArray();
+        int side = position.getSide();
+
+        OpeningBook book = opponent.getOpeningBook();
+        int pit = book == null ? -1 : book.bestMove(pits, side);
+        EndgameDatabase endgame = opponent.getEndgameDatabase();
+        if (pit < 0 && endgame != null) pit = endgame.bestMove(pits, side);
+        if (pit >= 0) {
+            publish(new Hint(position, pit, AlphaBetaSearch.MAX_DEPTH), stop);
+            return;
+        }
+
+        AlphaBetaSearch search = new AlphaBetaSearch(table, stop);
+        search.setEndgameDatabase(endgame);
+        table.newSearch();
+        long deadline = System.nanoTime() + PONDER_MILLIS * 1_000_000L;
+        for (int depth = 1; depth <= AlphaBetaSearch.MAX_DEPTH && !stop.get(); depth++) {
+            long millis = (deadline - System.nanoTime()) / 1_000_000L;
+            if (millis <= 0) break;
+            // Only the new depth is searched; the shallower ones are in the table
+            search.setStartDepth(depth);
+            SearchResult result = search.deepen(pits, side, millis, depth);
+            if (result.getDepth() < depth) break;
+            publish(new Hint(position, result.getBestPit(), depth), stop);
+        }
+    }
+
+    /**
+     * Makes a hint current, unless its search was cancelled, and notifies the observers.
+     */
+    private void publish(Hint h, AtomicBoolean stop) {
+        if (stop.get()) return;
+        Hint previous = hint;
+        hint = h;
+        if (previous != null && previous.position.equals(h.position) && previous.pit == h.pit) return;
+        SwingUtilities.invokeLater(() -> {
+            ChangeEvent event = new ChangeEvent(this);
+            for (ChangeListener l : listeners) {
+                l.stateChanged(event);
+            }
+        });
+    }
+
+    /**
+     * A best move for a position and the depth it was found at.
+     */
+    private static final class Hint {
+        private final PositionSnapshot position;
+        private final int pit;
+        private final int depth;
+
+        Hint(PositionSnapshot position, int pit, int depth) {
+            this.position = position;
+            this.pit = pit;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * A concrete rule variant for standard Kalah.
+ * A last stone in the mover's Mancala earns a free move. A last stone in an empty pit of the
+ * mover captures it together with the opposite pit, if that pit has stones. When one side is
+ * empty, the stones left on the other side go to that side's Mancala.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class KalahRules implements RuleVariant {
+    public static final String NAME = "kalah";
+
+    /**
+     * Applies the free move, the empty pit capture and the end of game sweep.
+     * @param engine the engine that sowed the stones
+     * @param pits the stones in every pit, updated in place
+     * @param last the index of the pit that received the last stone
+     * @param side the side making the move
+     * @param journal receives the stones moved into the Mancalas, or null
+     * @return the result flags of the move
+     */
+    @Override
+    public int finish(BoardEngine engine, int[] pits, int last, int side, MoveJournal journal) {
+        int flags = 0;
+        if (last == engine.store(side)) {
+            flags = BoardEngine.FREE_MOVE;
+        }
+        else if (engine.owner(last) == side && pits[last] == 1 && pits[engine.opposite(last)] > 0) {
+            engine.collect(pits, last, side, journal);
+            engine.collect(pits, engine.opposite(last), side, journal);
+            flags = BoardEngine.CAPTURE;
+        }
+
+        if (engine.isOver(pits)) {
+            engine.sweep(pits, journal);
+            flags |= BoardEngine.GAME_OVER;
+        }
+        return flags;
+    }
+
+    /**
+     * Returns the name of the variant.
+     * @return {@value #NAME}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
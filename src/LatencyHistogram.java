@@ -0,0 +1,153 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of times in nanoseconds with a bounded relative error, in the style of HdrHistogram.
+ * Values below 64 ns each have their own bucket. Above that, every power of two is split into
+ * 32 equal buckets, so a percentile is reported within about 3% of the recorded time whatever
+ * its magnitude. The buckets are preallocated, recording is lock-free and never allocates,
+ * and times longer than {@link #MAX_VALUE} are counted as that value.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+    /** The longest time told apart, about 18 minutes. */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(bucket(MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Constructs an empty histogram.
+     * @param name the name of the histogram
+     */
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a time.
+     * @param nanos a time in nanoseconds; negative times are counted as zero
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the time that a percentage of the recorded times do not exceed.
+     * @param percentile a percentage from 0 to 100
+     * @return the highest time in the bucket holding that percentile, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long target = (long) Math.ceil(percentile / 100 * count.get());
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= Math.max(target, 1)) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of recorded times.
+     * @return a count
+     */
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean recorded time.
+     * @return a time in nanoseconds, or 0 if nothing was recorded
+     */
+    @Override
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * Returns the longest recorded time.
+     * @return a time in nanoseconds
+     */
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the median recorded time.
+     * @return a time in nanoseconds
+     */
+    @Override
+    public long getP50() {
+        return getPercentile(50);
+    }
+
+    /**
+     * Returns the 99th percentile of the recorded times.
+     * @return a time in nanoseconds
+     */
+    @Override
+    public long getP99() {
+        return getPercentile(99);
+    }
+
+    /**
+     * Returns the 99.9th percentile of the recorded times.
+     * @return a time in nanoseconds
+     */
+    @Override
+    public long getP999() {
+        return getPercentile(99.9);
+    }
+
+    /** Discards every recorded time. Times recorded concurrently may be partly kept. */
+    @Override
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Returns the name of the histogram.
+     * @return a name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the bucket of a value: the value itself below 64, then 32 buckets per power of two.
+     */
+    private static int bucket(long value) {
+        int shift = 63 - Long.numberOfLeadingZeros(value | SUB_COUNT) - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * Returns the highest value that falls into a bucket.
+     */
+    private static long highest(int bucket) {
+        int shift = Math.max(0, (bucket >> SUB_BITS) - 1);
+        long lowest = (long) (bucket - (shift << SUB_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The management interface of a {@link LatencyHistogram}, as seen through JMX.
+ * Times are in nanoseconds.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * Returns the number of recorded times.
+     * @return a count
+     */
+    long getCount();
+
+    /**
+     * Returns the mean recorded time.
+     * @return a time in nanoseconds
+     */
+    double getMean();
+
+    /**
+     * Returns the longest recorded time.
+     * @return a time in nanoseconds
+     */
+    long getMax();
+
+    /**
+     * Returns the median recorded time.
+     * @return a time in nanoseconds
+     */
+    long getP50();
+
+    /**
+     * Returns the 99th percentile of the recorded times.
+     * @return a time in nanoseconds
+     */
+    long getP99();
+
+    /**
+     * Returns the 99.9th percentile of the recorded times.
+     * @return a time in nanoseconds
+     */
+    long getP999();
+
+    /** Discards every recorded time. */
+    void reset();
+}
@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A load test for {@link GameServer}.
+ * It opens one connection per game and keeps all games playing random legal moves for a
+ * while. Each worker thread drives its share of the games with a selector: every game has one
+ * request in flight, and its next move is sent as soon as the response is read, so games do not
+ * wait for each other. Moves start once every game is connected. The latency of each move, from
+ * sending the request to reading the response when its socket becomes readable, is recorded
+ * and reported as percentiles.
+ * Usage: {@code java LoadTestClient [games] [seconds] [workers] [host:port]}
+ * Without an address, a server is started in the same process.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class LoadTestClient {
+    private static final int STONES = 4;
+    private static final int LINE_BYTES = 256;
+    private final String host;
+    private final int port;
+    private final int workers;
+
+    /**
+     * Constructs a load test client.
+     * @param host the server host
+     * @param port the server port
+     * @param workers the number of worker threads
+     */
+    public LoadTestClient(String host, int port, int workers) {
+        this.host = host;
+        this.port = port;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Plays games on the server for a while.
+     * @param games the number of concurrent games
+     * @param millis how long to play
+     * @param seed the seed of the random moves
+     * @return the latency of every move in nanoseconds, sorted
+     */
+    public long[] run(int games, long millis, long seed) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        SplittableRandom random = new SplittableRandom(seed);
+        CountDownLatch connected = new CountDownLatch(workers);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            int count = games / workers + (w < games % workers ? 1 : 0);
+            SplittableRandom split = random.split();
+            futures.add(pool.submit(() -> drive(count, millis, connected, split)));
+        }
+        pool.shutdown();
+
+        long[] all = new long[0];
+        try {
+            for (Future<long[]> f : futures) {
+                long[] part = f.get();
+                long[] merged = Arrays.copyOf(all, all.length + part.length);
+                System.arraycopy(part, 0, merged, all.length, part.length);
+                all = merged;
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("load test failed", e.getCause());
+        }
+        Arrays.sort(all);
+        return all;
+    }
+
+    /**
+     * Connects a number of games, waits until every worker has connected its games,
+     * then plays them for a while.
+     * @return the move latencies of this worker
+     */
+    private long[] drive(int games, long millis, CountDownLatch connected, SplittableRandom random)
+            throws IOException, InterruptedException {
+        SocketChannel[] channels = new SocketChannel[games];
+        ByteBuffer[] buffers = new ByteBuffer[games];
+        String[] game = new String[games];
+        long[] sent = new long[games];
+        long[] latencies = new long[1 << 16];
+        int moves = 0;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < games; i++) {
+                channels[i] = SocketChannel.open(new InetSocketAddress(host, port));
+                channels[i].setOption(StandardSocketOptions.TCP_NODELAY, true);
+                buffers[i] = ByteBuffer.allocate(LINE_BYTES);
+                send(channels[i], "NEW " + STONES);
+                while ((game[i] = readLine(channels[i], buffers[i])) == null) {
+                    // The channel is still blocking, so every read waits for more of the line
+                }
+                channels[i].configureBlocking(false);
+                channels[i].register(selector, SelectionKey.OP_READ, i);
+            }
+            connected.countDown();
+            connected.await();
+            long deadline = System.nanoTime() + millis * 1_000_000L;
+
+            for (int i = 0; i < games; i++) {
+                sent[i] = sendNext(channels[i], game[i], random);
+            }
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                if (selector.select(Math.max(1, (deadline - now) / 1_000_000L)) == 0) continue;
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    int i = (Integer) key.attachment();
+                    String line = readLine(channels[i], buffers[i]);
+                    if (line == null) continue; // Only part of the response has arrived
+                    long received = System.nanoTime();
+                    if (!line.startsWith("OK")) {
+                        throw new IOException("unexpected response: " + line);
+                    }
+                    game[i] = line;
+                    if (sent[i] != 0) {
+                        if (moves == latencies.length) latencies = Arrays.copyOf(latencies, moves * 2);
+                        latencies[moves++] = received - sent[i];
+                    }
+                    if (received < deadline) sent[i] = sendNext(channels[i], game[i], random);
+                }
+            }
+        } finally {
+            connected.countDown(); // Do not keep the other workers waiting after a failure
+            for (SocketChannel c : channels) {
+                if (c != null) c.close();
+            }
+        }
+        return Arrays.copyOf(latencies, moves);
+    }
+
+    /**
+     * Sends the next request of a game: a random move while it is playing, otherwise a new game.
+     * @return the time the move was sent, or 0 for a new game
+     */
+    private static long sendNext(SocketChannel channel, String game, SplittableRandom random) throws IOException {
+        boolean playing = game.startsWith("OK PLAYING");
+        String command = playing ? "MOVE " + randomPit(game, random) : "NEW " + STONES;
+        long sent = playing ? System.nanoTime() : 0;
+        send(channel, command);
+        return sent;
+    }
+
+    /**
+     * Writes one request line. With a single request in flight, the socket buffer always has
+     * room for it, so a non-blocking write completes at once.
+     */
+    private static void send(SocketChannel channel, String command) throws IOException {
+        ByteBuffer request = ByteBuffer.wrap((command + '\n').getBytes(StandardCharsets.US_ASCII));
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+    }
+
+    /**
+     * Reads what has arrived on a channel and returns the first complete line.
+     * @return the line without its terminator, or null if it is not complete yet
+     */
+    private static String readLine(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        if (channel.read(buffer) < 0) {
+            throw new IOException("connection closed by the server");
+        }
+        for (int end = 0; end < buffer.position(); end++) {
+            if (buffer.get(end) == '\n') {
+                String line = new String(buffer.array(), 0, end, StandardCharsets.US_ASCII);
+                buffer.flip().position(end + 1);
+                buffer.compact();
+                return line;
+            }
+        }
+        if (!buffer.hasRemaining()) {
+            throw new IOException("response longer than " + LINE_BYTES + " bytes");
+        }
+        return null;
+    }
+
+    /**
+     * Chooses a random legal pit from a game description.
+     */
+    private static int randomPit(String game, SplittableRandom random) {
+        String[] words = game.split(" ");
+        int side = words[2].equals("A") ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        for (int i = 0; i < pits.length; i++) {
+            pits[i] = Integer.parseInt(words[i + 3]);
+        }
+        int pit;
+        do {
+            pit = random.nextInt(BoardEngine.MAX_PITS);
+        } while (!BoardEngine.STANDARD.isLegal(pits, pit, side));
+        return pit;
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     * @param sorted values in ascending order
+     * @param percent a percentile between 0 and 100
+     * @return the value at that percentile
+     */
+    public static long percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Runs a load test and prints the throughput and latency percentiles.
+     * @param args optional number of games, seconds, workers and server address
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        GameServer server = null;
+        String host = "localhost";
+        int port;
+        if (args.length > 3) {
+            String[] address = args[3].split(":");
+            host = address[0];
+            port = Integer.parseInt(address[1]);
+        }
+        else {
+            server = new GameServer(0);
+            server.start();
+            port = server.getPort();
+        }
+
+        try {
+            long[] latencies = new LoadTestClient(host, port, workers).run(games, seconds * 1000L, 42);
+            System.out.printf("%,d games, %,d workers, %,d moves in %d s (%,d moves/s)%n", games, workers,
+                    latencies.length, seconds, latencies.length / Math.max(1, seconds));
+            System.out.printf("move latency p50 %,d us  p99 %,d us  max %,d us%n",
+                    percentile(latencies, 50) / 1000, percentile(latencies, 99) / 1000,
+                    percentile(latencies, 100) / 1000);
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+}
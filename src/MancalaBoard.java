@@ -10,25 +10,41 @@ import java.awt.event.MouseEvent;
  * @version 1.1 12/05/2024
  */
 public class MancalaBoard extends JFrame implements MancalaController {
-    public final int WIDTH = 870;
+    public final int WIDTH;
     public final int HEIGHT = 550;
+    private static final int STANDARD_WIDTH = 870;
+    private static final int PIT_SPACING = 100;
+    public final long SUGGEST_MILLIS = 200;
     private ChangeListener boardView;
     private MancalaModel mancalaModel;
     private String selectedFormat;
     private String selectedStones;
+    private String selectedOpponent;
+    private ComputerPlayer computerPlayer;
+    private AlphaBetaSearch suggestSearch;
+    private HintEngine hintEngine;
+    private JCheckBox hintBox;
+    private boolean suggesting;
     private JPanel selectionPanel;
 
     /**
-     * Constructs a new board
+     * Constructs a new board, one pit spacing wider than the standard board
+     * for every extra pit per side of the model.
      */
     public MancalaBoard(MancalaModel model) {
         super();
+        WIDTH = STANDARD_WIDTH + (model.PLAYER_A_PIT - BoardEngine.PLAYER_A_PIT) * PIT_SPACING;
         this.setSize(WIDTH, HEIGHT);
         this.setResizable(false);
         mancalaModel = model;
         boardView = new MancalaView(mancalaModel);
+        computerPlayer = new ComputerPlayer(mancalaModel, Player.B);
+        suggestSearch = new AlphaBetaSearch(new TranspositionTable(16));
+        hintEngine = new HintEngine(mancalaModel, computerPlayer);
+        hintEngine.attach(e -> showHint());
+        FormatAssets.preload(new FloweryFormat(), new OakBoardFormat()); // Decode backgrounds while the user chooses
 
-        // Set up the lower panel with Undo and Restart buttons
+        // Set up the lower panel with Undo, Redo, Suggest Move and Restart buttons
         JPanel controlPanel = createControlPanel();
 
         // Set up the selection panel for choosing board format and marbles
@@ -44,7 +60,8 @@ public class MancalaBoard extends JFrame implements MancalaController {
     }
 
     /**
-     * Creates the lower control panel with Undo and Restart buttons.
+     * Creates the lower control panel with Undo, Redo, Suggest Move and Restart buttons
+     * and the Show Hints check box.
      */
     private JPanel createControlPanel() {
         JPanel controlPanel = new JPanel();
@@ -52,7 +69,21 @@ public class MancalaBoard extends JFrame implements MancalaController {
         undoButton.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                mancalaModel.undoMove();
+                if (computerPlayer.isEnabled()) {
+                    // Take back the computer's reply too, or it would play again at once
+                    mancalaModel.undoTurn(computerPlayer.getPlayer() == Player.A ? Player.B : Player.A);
+                }
+                else {
+                    mancalaModel.undoMove();
+                }
+            }
+        });
+
+        JButton redoButton = new JButton("Redo");
+        redoButton.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                mancalaModel.redoMove();
             }
         });
 
@@ -66,36 +97,104 @@ public class MancalaBoard extends JFrame implements MancalaController {
             }
         });
 
+        JButton suggestButton = new JButton("Suggest Move");
+        suggestButton.addActionListener(e -> suggestMove());
+
+        hintBox = new JCheckBox("Show Hints");
+        hintBox.addActionListener(e -> {
+            if (hintBox.isSelected()) showHint();
+            else ((MancalaView) boardView).setHintPit(-1);
+        });
+
         controlPanel.add(undoButton);
+        controlPanel.add(redoButton);
+        if (isStandardBoard()) {
+            controlPanel.add(suggestButton); // The book and search play the standard game
+            controlPanel.add(hintBox);
+        }
         controlPanel.add(restartButton);
         return controlPanel;
     }
 
     /**
-     * Creates the selection panel for choosing board format and marbles.
+     * Highlights a suggested move for the current player: the hint pondered in the background
+     * if there is one yet, the opening book move if the position is in the book, otherwise
+     * the result of a short search run in the background, shown only if the position has not
+     * changed while searching.
+     */
+    private void suggestMove() {
+        if (mancalaModel.getState() != GameState.PLAYING) return;
+        int side = mancalaModel.getPlayer() == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+        OpeningBook book = computerPlayer.getOpeningBook();
+        int pit = hintEngine.getHint();
+        if (pit < 0 && book != null) pit = book.bestMove(mancalaModel.getPits(), side);
+        if (pit >= 0) {
+            ((MancalaView) boardView).setHintPit(pit);
+            return;
+        }
+        if (suggesting) return; // The search instance is not thread-safe
+
+        suggesting = true;
+        final PositionSnapshot position = mancalaModel.getSnapshot();
+        new SwingWorker<SearchResult, Void>() {
+            @Override
+            protected SearchResult doInBackground() {
+                return suggestSearch.search(position.toArray(), side, SUGGEST_MILLIS, AlphaBetaSearch.MAX_DEPTH);
+            }
+
+            @Override
+            protected void done() {
+                suggesting = false;
+                try {
+                    if (position.equals(mancalaModel.getSnapshot())) {
+                        ((MancalaView) boardView).setHintPit(get().getBestPit());
+                    }
+                } catch (Exception ex) {
+                    // No suggestion
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Highlights the latest pondered hint when hints are shown.
+     */
+    private void showHint() {
+        if (hintBox.isSelected()) ((MancalaView) boardView).setHintPit(hintEngine.getHint());
+    }
+
+    /**
+     * Creates the selection panel for choosing board format, marbles and opponent.
      */
     private JPanel createSelectionPanel(JPanel controlPanel) {
-        JPanel selectionPanel = new JPanel();
-        JLabel selectionHeader = new JLabel("Select board style and number of stones.");
+        JPanel selectionPanel = new JPanel(new BorderLayout());
+        JPanel optionsPanel = new JPanel();
+        JLabel selectionHeader = new JLabel("Select board style, number of stones and opponent.", SwingConstants.CENTER);
 
-        selectionPanel.add(selectionHeader);
+        // Header on its own row so the options fit the board width
+        selectionPanel.add(selectionHeader, BorderLayout.NORTH);
+        selectionPanel.add(optionsPanel, BorderLayout.CENTER);
 
         // Dropdown menus for board format and stone selection
         JComboBox<String> formatSelector = new JComboBox<>(new String[]{"Select Format", "Flowery Board", "Oak Board"});
         JComboBox<String> stoneSelector = new JComboBox<>(new String[]{"Select Stones", "3", "4"});
+        JComboBox<String> opponentSelector = new JComboBox<>(isStandardBoard()
+                ? new String[]{"vs. Human", "vs. Computer"} : new String[]{"vs. Human"});
 
-        selectionPanel.add(new JLabel("Board Format:"));
-        selectionPanel.add(formatSelector);
-        selectionPanel.add(new JLabel("Stones Count:"));
-        selectionPanel.add(stoneSelector);
+        optionsPanel.add(new JLabel("Board Format:"));
+        optionsPanel.add(formatSelector);
+        optionsPanel.add(new JLabel("Stones Count:"));
+        optionsPanel.add(stoneSelector);
+        optionsPanel.add(opponentSelector);
 
         JButton applyButton = new JButton("Start Game");
-        selectionPanel.add(applyButton);
+        optionsPanel.add(applyButton);
 
         // Action listener for the "Start Game" button
         applyButton.addActionListener(e -> {
             selectedFormat = (String) formatSelector.getSelectedItem();
             selectedStones = (String) stoneSelector.getSelectedItem();
+            selectedOpponent = (String) opponentSelector.getSelectedItem();
 
             if (isValidSelection(selectedFormat, selectedStones)) {
                 setupGame(controlPanel, selectionPanel);
@@ -107,6 +206,13 @@ public class MancalaBoard extends JFrame implements MancalaController {
         return selectionPanel;
     }
 
+    /**
+     * Checks if the board plays the standard game, six pits per side with the Kalah rules.
+     */
+    private boolean isStandardBoard() {
+        return mancalaModel.getEngine().isStandard();
+    }
+
     /**
      * Validates the user's selections for board format and marble count.
      */
@@ -156,6 +262,7 @@ public class MancalaBoard extends JFrame implements MancalaController {
      */
     @Override
     public void notifyModel() {
+        mancalaModel.beginBatch(); // Observers see the new game once, not every step of it
         mancalaModel.setStones(Integer.parseInt(selectedStones));
         mancalaModel.setState(GameState.BEGIN);
         if (selectedFormat.equals("Flowery Board")) {
@@ -164,6 +271,8 @@ public class MancalaBoard extends JFrame implements MancalaController {
         else if (selectedFormat.equals("Oak Board")) {
             mancalaModel.setFormat(new OakBoardFormat());
         }
+        computerPlayer.setEnabled("vs. Computer".equals(selectedOpponent));
         mancalaModel.startNewGame();
+        mancalaModel.endBatch();
     }
 }
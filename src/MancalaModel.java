@@ -1,3 +1,4 @@
+import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.util.ArrayList;
@@ -5,125 +6,278 @@ import java.util.ArrayList;
 /**
  * The model class in the MVC (Model-View-Controller) architecture for managing the game.
  * This class holds the number of stones on each pit and manages the game rule and states.
+ * After every change it publishes an immutable {@link PositionSnapshot} for readers on other threads.
  *
  * @author Tuan-Anh Ho
  * @version 1.2 12/05/2024
  */
 public class MancalaModel {
+    private static final LatencyHistogram MOVE_LATENCY = Metrics.histogram("model.move");
+    private static final LatencyHistogram UNDO_LATENCY = Metrics.histogram("model.undoMove");
+    private static final Counter UNDO_REFUSED = Metrics.counter("model.undoMove.refused");
     private ArrayList<ChangeListener> listeners;
+    private final int[] notifiedPits;
+    private Player notifiedPlayer;
+    private GameState notifiedState;
+    private FormatStrategy notifiedFormat;
+    private int batchDepth;
+    private boolean batchChanged;
+    private volatile PositionSnapshot snapshot;
+    private long snapshots;
     private int[] pits;
-    private int[] prevPits;
+    private final BoardEngine engine;
+    private final MoveJournal journal;
     private Player player;
     private GameState state;
     private boolean isLastStone;
-    private boolean isUndoable;
     private int undoCount1;
     private int undoCount2;
+    private int turnUndoCount;
+    private int turnUndoDepth;
+    private Player turnUndoPlayer;
     private FormatStrategy format;
     public final int MAX_UNDO = 3;
-    public final int MAX_PITS = 14;
-    public final int PLAYER_A_PIT = 6;
-    public final int PLAYER_B_PIT = 13;
+    public final int MAX_HISTORY = 512;
+    public final int MAX_PITS;
+    public final int PLAYER_A_PIT;
+    public final int PLAYER_B_PIT;
 
-    /** Constructs a default Mancala Model. */
+    /** Constructs a default Mancala Model with six pits per side and the Kalah rules. */
     public MancalaModel(){
+        this(BoardEngine.STANDARD);
+    }
+
+    /**
+     * Constructs a Mancala Model for a board with a number of pits per side and the Kalah rules.
+     * @param pitsPerSide the number of pits on each side, not counting the Mancalas
+     */
+    public MancalaModel(int pitsPerSide) {
+        this(BoardEngine.of(pitsPerSide));
+    }
+
+    /**
+     * Constructs a Mancala Model playing with an engine's board geometry and rule variant.
+     * @param engine the engine playing the moves
+     */
+    public MancalaModel(BoardEngine engine) {
+        this.engine = engine;
+        MAX_PITS = engine.getPitCount();
+        PLAYER_A_PIT = engine.store(BoardEngine.SIDE_A);
+        PLAYER_B_PIT = engine.store(BoardEngine.SIDE_B);
+        notifiedPits = new int[MAX_PITS];
+        journal = new MoveJournal(engine, MAX_HISTORY);
         setFormat(new OakBoardFormat()); // A default format for the board
         setListeners(new ArrayList<>());
         setPits(new int[MAX_PITS]);
-        setPrevPits(new int[MAX_PITS]);
         setState(GameState.BEGIN);
         setPlayer(Player.A);
         setUndoCount1(0);
         setUndoCount2(0);
         setLastStone(false);
-        setUndoable(false);
+        publishSnapshot();
     }
 
-    /** Notifies all registered observers of changes in the model.*/
+    /**
+     * Publishes a snapshot of the position and notifies all registered observers of the changes
+     * since the last notification. Inside a batch, the notification is deferred until the batch ends.
+     */
     private void notifyListeners() {
+        publishSnapshot();
+        if (batchDepth > 0) {
+            batchChanged = true;
+            return;
+        }
+        ChangeEvent event = createChangeEvent();
         for (ChangeListener l : getListeners()){
-            l.stateChanged(new ChangeEvent(this));
+            if (Metrics.ENABLED) {
+                long start = System.nanoTime();
+                l.stateChanged(event);
+                Metrics.listener(l).record(System.nanoTime() - start);
+            }
+            else {
+                l.stateChanged(event);
+            }
+        }
+    }
+
+    /**
+     * Replaces the published snapshot with one of the current position.
+     */
+    private void publishSnapshot() {
+        snapshot = new PositionSnapshot(getPits(), getPlayer(), getState(), isLastStone(), snapshots++);
+    }
+
+    /**
+     * Returns an event describing the changes since the last notification
+     * and remembers the current state for the next one.
+     */
+    private ModelChangeEvent createChangeEvent() {
+        long changedPits = 0;
+        for (int i = 0; i < MAX_PITS; i++) {
+            if (getPits()[i] != notifiedPits[i]) changedPits |= 1L << i;
         }
+        System.arraycopy(getPits(), 0, notifiedPits, 0, MAX_PITS);
+        ModelChangeEvent event = new ModelChangeEvent(this, changedPits, getPlayer() != notifiedPlayer,
+                getState() != notifiedState, getFormat() != notifiedFormat);
+        notifiedPlayer = getPlayer();
+        notifiedState = getState();
+        notifiedFormat = getFormat();
+        return event;
+    }
+
+    /**
+     * Starts a batch of changes. Observers are notified once, when the outermost batch ends,
+     * instead of once per change. Batches may be nested.
+     */
+    public void beginBatch() {
+        batchDepth++;
     }
 
     /**
-     * Sets the initial number of stones in each pit (excluding player Mancalas)
-     * and notifies listeners.
+     * Ends a batch of changes and notifies all observers if anything changed in it.
+     */
+    public void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("no batch in progress");
+        }
+        if (--batchDepth == 0 && batchChanged) {
+            batchChanged = false;
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Sets the initial number of stones in each pit (excluding player Mancalas),
+     * clears the move history and notifies listeners.
      * @param stones a specified number of stones
      */
     public void setStones(int stones) {
-        for(int i = 0; i < getPits().length; i++) {
-            if (!isInPlayerPit(i))
-                getPits()[i] = stones;
-            else getPits()[i] = 0; // Mancala Pit
-        }
+        engine.setStones(getPits(), stones);
+        journal.clear();
+        turnUndoCount = 0;
         this.notifyListeners();
     }
 
     /**
      * Executes a move from the selected pit, updates the game state, and notifies listeners.
+     * With metrics enabled, the time taken, including notifying listeners, is recorded as {@code model.move}.
      * @param pitIndex an index of the selected pit
      */
     public void move(int pitIndex) {
-        // Save state
-        this.save();
-        setUndoable(true);
-        if (!isLastStone()) resetUndoCount();
-
-        // Remove all stones from the selected pit
-        int stones = getPits()[pitIndex];
-        getPits()[pitIndex] = 0;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (!isLastStone()) {
+            resetUndoCount();
+            // A turn of the player past the one taken back by undoTurn starts a new undo allowance
+            if (getPlayer() == turnUndoPlayer && journal.getUndoDepth() > turnUndoDepth) {
+                turnUndoCount = 0;
+            }
+        }
 
-        // Distribute the stones to adjacent pits and do last stone rule
-        int currentPit = dropStones(pitIndex, stones);
-        doLastStoneRule(currentPit);
+        // Distribute the stones, do last stone rule and sweep the board when one side is empty,
+        // recording the move so it can be undone
+        int flags = journal.record(getPits(), pitIndex, getSide());
 
+        // Free move if the last stone landed on own Mancala, otherwise switch turns
+        setLastStone((flags & BoardEngine.FREE_MOVE) != 0);
+        if (!isLastStone()) switchPlayer();
 
         // Check if the game is complete (all pits on one side are empty)
-        if (isWin()) {
-            moveLastStoneToMancala();
+        if ((flags & BoardEngine.GAME_OVER) != 0) {
             state = GameState.COMPLETE;
         }
         // Notify all listeners of the updated game state
         this.notifyListeners();
+        if (Metrics.ENABLED) MOVE_LATENCY.record(System.nanoTime() - start);
     }
 
     /**
-     * Reverts the last move if undo is allowed,
+     * Reverts the last move on the board if undo is allowed,
      * updating the game state and notifying listeners.
+     * Moves can be undone one after another until a player has used up {@link #MAX_UNDO} undos.
+     * With metrics enabled, the time taken is recorded as {@code model.undoMove} and refused undos are counted.
      */
     public void undoMove() {
-        boolean flag = false;
-
         // If undo is not allowed, exit early
-        if (!isUndoable()) {
+        if (!isUndoable() || !undoable()) {
+            if (Metrics.ENABLED) UNDO_REFUSED.increment();
             return;
         }
-
-        // Handle undo logic based on the current player
-        if (undoable()) {
-            // Switch player if previous move belongs to the other player
-            if (!isLastStone()) {
-                switchPlayer();
-            }
-            flag = true;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        takeBack();
+
+        // Update game state if required
+        if (isEndgameUndo()) state = GameState.PLAYING;
+        incrementUndoCount(getPlayer());
+        this.notifyListeners(); // Notify listeners
+        if (Metrics.ENABLED) UNDO_LATENCY.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Reverts moves until it is a player's turn again on a move of their own: the opponent's
+     * moves since, then the player's last move. This is how a player undoes against the computer,
+     * which would otherwise replay its move as soon as it was taken back, and listeners are
+     * notified once.
+     * The opponent's replies do not restore the player's allowance the way an opponent's move
+     * does for {@link #undoMove()}: a player can take back up to {@link #MAX_UNDO} turns until they
+     * start a turn later in the game than the last one taken back.
+     * @param player the player undoing their move
+     */
+    public void undoTurn(Player player) {
+        if (player != turnUndoPlayer) {
+            turnUndoPlayer = player;
+            turnUndoCount = 0;
+        }
+        if (!isUndoable() || turnUndoCount >= MAX_UNDO) {
+            if (Metrics.ENABLED) UNDO_REFUSED.increment();
+            return;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int side = player == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+        while (journal.canUndo() && journal.getLastSide() != side) {
+            takeBack(); // The opponent's replies
         }
+        if (journal.canUndo()) takeBack();
+        turnUndoDepth = journal.getUndoDepth();
+        turnUndoCount++;
 
-        // Perform the undo operation
-        if (flag) {
-            // Update game state if required
-            if (isEndgameUndo()) state = GameState.PLAYING;
-            incrementUndoCount(getPlayer());
-            setPits(getPrevPits().clone());
-            setUndoable(false);
-            this.notifyListeners(); // Notify listeners
+        if (getState() == GameState.COMPLETE) state = GameState.PLAYING;
+        this.notifyListeners();
+        if (Metrics.ENABLED) UNDO_LATENCY.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Takes back the stones of the last move and gives the turn back to the player who moved.
+     */
+    private void takeBack() {
+        int side = journal.undo(getPits());
+        setPlayer(side == BoardEngine.SIDE_A ? Player.A : Player.B);
+        setLastStone((journal.getLastFlags() & BoardEngine.FREE_MOVE) != 0);
+    }
+
+    /**
+     * Plays again the last undone move, if no other move was played since,
+     * updating the game state and notifying listeners.
+     */
+    public void redoMove() {
+        if (!isRedoable()) {
+            return;
+        }
+        int flags = journal.redo(getPits());
+        setLastStone((flags & BoardEngine.FREE_MOVE) != 0);
+        int side = BoardEngine.nextSide(journal.getLastSide(), flags);
+        setPlayer(side == BoardEngine.SIDE_A ? Player.A : Player.B);
+        if ((flags & BoardEngine.GAME_OVER) != 0) {
+            state = GameState.COMPLETE;
         }
+        this.notifyListeners();
     }
 
     /**
      * Notifies all observers to start a new game.
      */
     public void startNewGame() {
+        journal.clear();
+        turnUndoCount = 0;
         setState(GameState.PLAYING);
         notifyListeners();
     }
@@ -136,6 +290,16 @@ public class MancalaModel {
         getListeners().add(listener);
     }
 
+    /**
+     * Registers an observer that is notified on the event dispatch thread.
+     * Changes made before the observer runs are merged into one event, so it is
+     * notified at most once per pass of the event dispatch thread.
+     * @param listener a specified observer
+     */
+    public void attachOnEventThread(ChangeListener listener) {
+        attach(new ModelEventDispatcher(listener, SwingUtilities::invokeLater, 1));
+    }
+
     /**
      * Determines if the specified pit is playable based on the game state,
      * pit contents, and current player.
@@ -154,11 +318,7 @@ public class MancalaModel {
         }
 
         // Verify if it is the current player's pit
-        if (getCurrentPlayer(pit) != getPlayer()) {
-            return false;
-        }
-
-        return pit < MAX_PITS && pit != PLAYER_A_PIT && pit != PLAYER_B_PIT;
+        return engine.isLegal(getPits(), pit, getSide());
     }
 
     /**
@@ -176,6 +336,17 @@ public class MancalaModel {
         return 0;
     }
 
+    /**
+     * Returns the latest position published by the model. The model publishes a new snapshot
+     * whenever it notifies its observers, so any thread may call this method and read a
+     * consistent position without locking, while {@link #getPits()} is only safe to read on the
+     * thread playing the game.
+     * @return an immutable snapshot of the position
+     */
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     /**
      * Returns a list of observers of this model.
      * @return the list of observers
@@ -193,7 +364,8 @@ public class MancalaModel {
     }
 
     /**
-     * Returns an array of stones in all pits.
+     * Returns an array of stones in all pits. This is the live board, changed in place by every
+     * move; threads other than the one playing the game should read {@link #getSnapshot()}.
      * @return an array of stones number
      */
     public int[] getPits() {
@@ -208,22 +380,6 @@ public class MancalaModel {
         this.pits = pits;
     }
 
-    /**
-     * Returns an array of stones in all pits from the game's previous state.
-     * @return an array of stones in previous state
-     */
-    public int[] getPrevPits() {
-        return prevPits;
-    }
-
-    /**
-     * Sets an array of stones for all pits of previous state.
-     * @param prevPits a specified array of number of stones
-     */
-    public void setPrevPits(int[] prevPits) {
-        this.prevPits = prevPits;
-    }
-
     /**
      * Returns the current player stored in this model.
      * @return a current player
@@ -272,18 +428,35 @@ public class MancalaModel {
     }
 
     /**
-     * Returns the result of a query if the game is undoable.
-     * @return true if the move is undoable
+     * Returns the result of a query if a move is on the board to undo.
+     * @return true if a move is undoable
      */
     public boolean isUndoable() {
-        return isUndoable;
+        return journal.canUndo();
+    }
+
+    /**
+     * Returns the result of a query if an undone move can be played again.
+     * @return true if a move is redoable
+     */
+    public boolean isRedoable() {
+        return journal.canRedo();
+    }
+
+    /**
+     * Returns the rules engine for the geometry of this board.
+     * @return a board engine
+     */
+    public BoardEngine getEngine() {
+        return engine;
     }
 
     /**
-     * Sets the result of the query if the move is undoable.
+     * Returns the journal of the moves played in this game.
+     * @return a move journal
      */
-    public void setUndoable(boolean undoable) {
-        isUndoable = undoable;
+    public MoveJournal getJournal() {
+        return journal;
     }
 
     /**
@@ -335,40 +508,6 @@ public class MancalaModel {
         if (getListeners() != null) notifyListeners();
     }
 
-    /**
-     * Returns the current player based on the pit index.
-     * @param pit a pit index
-     * @return a player owns that pit
-     */
-    private Player getCurrentPlayer(int pit) {
-        if (pit >= 0 && pit <= PLAYER_A_PIT) {
-            return Player.A;
-        }
-        else return Player.B;
-    }
-
-    /**
-     * Checks if a pit is a Mancala pit based on a pit index.
-     * @param pit a pit index
-     * @return true if the pit is a Mancala pit.
-     */
-    private boolean isInPlayerPit(int pit) {
-        return (pit == PLAYER_A_PIT || pit == PLAYER_B_PIT);
-    }
-
-    /**
-     * Returns the index of the pit opposite to the specified pit index.
-     * @param pit a specified pit index
-     * @return the index of the opposite pit
-     */
-    private int getOppositePit(int pit) {
-        if(pit <=12) {
-            return 12 - pit;
-        } else{
-            return pit - 12;
-        }
-    }
-
     /**
      * Checks if players can undo a move based on their undo counts.
      * @return true if the count is less than 3.
@@ -378,10 +517,11 @@ public class MancalaModel {
     }
 
     /**
-     * Saves the state of the board.
+     * Returns the engine side of the current player.
+     * @return {@link BoardEngine#SIDE_A} or {@link BoardEngine#SIDE_B}
      */
-    private void save() {
-        setPrevPits(getPits().clone());
+    private int getSide() {
+        return getPlayer() == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
     }
 
     /**
@@ -391,107 +531,6 @@ public class MancalaModel {
         setPlayer(getPlayer() == Player.A ? Player.B : Player.A);
     }
 
-    /**
-     * Moves all remaining stones to respective player's pits when game ends.
-     */
-    private void moveLastStoneToMancala() {
-        for (int i = 0; i < MAX_PITS; ++i) {
-            if (!isInPlayerPit(i)) { // Skip the Mancala pit
-                int stones = getPits()[i];
-                if (stones > 0) {
-                    getPits()[getPlayerMancala(getCurrentPlayer(i))] += stones; // Move all stones to a player pit
-                    getPits()[i] = 0; // Take all stone from current pit
-                }
-            }
-        }
-    }
-
-    /**
-     * Returns the Mancala pit index of a player's.
-     * @param player a specified player
-     * @return the index of the player's Mancala
-     */
-    private int getPlayerMancala(Player player) {
-        return player == Player.A ? PLAYER_A_PIT : PLAYER_B_PIT;
-    }
-
-    /**
-     * Applies the last stone rule, granting a free move if it lands in the player's Mancala,
-     * stealing stones if it lands in an empty pit, or switching turns otherwise.
-     * @param pit a specified pit index
-     */
-    private void doLastStoneRule(int pit) {
-        // Last stone lands on own Mancala
-        if (isOwnMancala(pit)) {
-            setLastStone(true); // Free move
-            return;
-        }
-
-        // Last stone lands on an empty pit
-        if (isOwnEmptyPit(pit)) {
-            stealStones(pit);
-        }
-        setLastStone(false);
-        switchPlayer();
-    }
-
-    /**
-     * Checks if the specified pit index is the player's own Mancala.
-     * @param pit the index of the pit to check
-     * @return true if the pit is the player's Mancala, false otherwise
-     */
-    private boolean isOwnMancala(int pit) {
-        return getCurrentPlayer(pit) == getPlayer() && isInPlayerPit(pit);
-    }
-
-    /**
-     * Checks if the specified pit is the player's own empty pit
-     * and the opposite pit has stones.
-     * @param pit the index of the pit to check
-     * @return true if the pit is the player's own, is empty, and the opposite pit contains stones
-     */
-    private boolean isOwnEmptyPit(int pit) {
-        return getCurrentPlayer(pit) == getPlayer() &&
-                getPits()[pit] == 1 &&
-                getPits()[getOppositePit(pit)] > 0;
-    }
-
-    /**
-     * Transfers all stones from the specified pit and its opposite pit
-     * to the player's Mancala, leaving both pits empty.
-     *
-     * @param currentPit the index of the current pit whose stones will be stolen
-     */
-    private void stealStones(int currentPit) {
-        int stones = getPits()[currentPit] + getPits()[getOppositePit(currentPit)];
-        getPits()[currentPit] = 0;
-        getPits()[getOppositePit(currentPit)] = 0;
-        // Find the player pit
-        int mancala = (getPlayer() == Player.A ? PLAYER_A_PIT : PLAYER_B_PIT);
-        getPits()[mancala] += stones; // Pass all stone to that player pit
-    }
-
-    /**
-     * Checks if the game has ended by determining if all pits
-     * on one player's side are empty.
-     *
-     * @return true if either Player A's or Player B's pits are all empty
-     */
-    private boolean isWin() {
-        int pAPits = 0;
-        int pBPits = 0;
-
-        for (int i = 0; i < PLAYER_A_PIT; i++) {
-            pAPits += getPits()[i];
-        }
-
-        for (int i = PLAYER_A_PIT + 1; i < PLAYER_B_PIT; i++) {
-            pBPits += getPits()[i];
-        }
-
-        return (pAPits == 0 || pBPits == 0);
-    }
-
     /**
      * Resets the undo count for players.
      */
@@ -503,31 +542,6 @@ public class MancalaModel {
         }
     }
 
-    /**
-     * Distributes stones starting from the specified pit, skipping opponent's Mancala pits,
-     * and returns the index of the last pit where a stone is placed.
-     * @param startPit the index of the pit to start dropping stones from
-     * @param stones the number of stones to distribute
-     * @return the index of the last pit where a stone is placed
-     */
-    private int dropStones(int startPit, int stones) {
-        int currentPit = startPit;
-
-        while (stones > 0) {
-            currentPit = (currentPit + 1) % MAX_PITS;
-
-            if (isInPlayerPit(currentPit) && getCurrentPlayer(currentPit) != getPlayer()) {
-                continue;
-            }
-
-            // Place one stone in the current pit
-            getPits()[currentPit]++;
-            stones--;
-        }
-
-        return currentPit;
-    }
-
     /**
      * Increments the undo count for the specified player.
      */
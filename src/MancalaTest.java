@@ -10,13 +10,17 @@ import javax.swing.*;
 
 /**
  * A program allows two players to play a Mancala board game.
+ * Usage: {@code java MancalaTest [pitsPerSide] [variant]}, six pits per side and the Kalah rules
+ * by default; the variants are those of {@link RuleVariant#of(String)}.
  *
  * @author Tuan-Anh Ho
- * @version 1.1 12/05/2024
+ * @version 1.2 12/05/2024
  */
 public class MancalaTest {
     public static void main(String[] args) {
-        MancalaModel model = new MancalaModel();
+        int pitsPerSide = args.length > 0 ? Integer.parseInt(args[0]) : BoardEngine.STANDARD.getPitsPerSide();
+        RuleVariant rules = RuleVariant.of(args.length > 1 ? args[1] : KalahRules.NAME);
+        MancalaModel model = new MancalaModel(new BoardEngine(pitsPerSide, rules));
         MancalaBoard mFrame = new MancalaBoard(model);
         mFrame.setVisible(true);
         mFrame.setLocation(450, 250);
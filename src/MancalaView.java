@@ -1,6 +1,7 @@
 import java.util.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
 import javax.swing.event.*;
 
@@ -8,33 +9,56 @@ import javax.swing.event.*;
  * A concrete class displays the board and pits.
  * This class serves as an observer in the MVC (Model-View-Controller) architecture
  * for displaying a list of stone pits. It listens to changes in the model and updates
- * the stones accordingly.
+ * the stones accordingly. The pits are kept between updates and only the pits whose
+ * stones or selection changed are repainted. The pits are laid out for the number of pits
+ * per side of the model, each side one row wide. Notifications arrive on the event dispatch thread,
+ * with the changes made since the previous one merged into a single update.
+ * <p>
+ * The board is painted in two layers. The static layer, the background, the pit shapes and the
+ * labels, is rendered once into an offscreen image for the format and size of the component and
+ * copied on every paint. The dynamic layer, the stones, the selection and the turn information,
+ * is drawn over it, so a frame no longer redraws the background or rotates the Mancala labels.
  * A MancalaView has an associated Mancala Model and Format Strategy.
  *
  * @author Tuan-Anh
  * @version 1.1 12/05/2024
  */
 public class MancalaView extends JComponent implements ChangeListener, MancalaController {
+    private static final LatencyHistogram FRAME_TIME = Metrics.histogram("view.paintComponent");
+    private static final LatencyHistogram LAYER_TIME = Metrics.histogram("view.staticLayer");
     private ArrayList<StonePit> pits;
     private MancalaModel model;
     private FormatStrategy boardFormat;
     private int[] stoneArray;
     private int selectedPit;
+    private int hintPit;
+    private Player shownPlayer;
+    private GameState shownState;
+    private int repaintedPits;
+    private long repaintedPixels;
+    private BufferedImage staticLayer;
+    private FormatStrategy layerFormat;
+    private boolean layerCached;
 
     /** Constructs a MancalaView with a specified model.*/
     public MancalaView(MancalaModel model) {
         this.model = model;
-        stoneArray = new int[14];
+        stoneArray = new int[model.MAX_PITS];
         pits = new ArrayList<>();
         boardFormat = this.model.getFormat();
-        model.attach(this);
+        model.attachOnEventThread(this); // Bursts of changes are painted once
         selectedPit = -1;
+        hintPit = -1;
+        layerCached = true;
 
         addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
             for (int i = 0; i < pits.size(); i++) {
-                if (pits.get(i).isSelected()) pits.get(i).setSelected(false);
+                if (pits.get(i).isSelected()) {
+                    pits.get(i).setSelected(false);
+                    repaint(pits.get(i).getRepaintBounds());
+                }
                 if (pits.get(i).contains(e.getPoint()) && model.playable(i)) {
                     selectedPit = i;
                     pits.get(i).setSelected(true);
@@ -42,7 +66,6 @@ public class MancalaView extends JComponent implements ChangeListener, MancalaCo
                     return;
                 }
             }
-            repaint();
             }
         });
     }
@@ -56,43 +79,64 @@ public class MancalaView extends JComponent implements ChangeListener, MancalaCo
     }
 
     /**
-     * Updates the board by recreating pits
-     * and Mancalas based on the game model's state and stone counts.
+     * Updates the board by creating the pits and Mancalas the first time,
+     * then refreshing their stone counts and selection from the game model's state.
      */
     public void updateGame() {
+        if (pits.size() != model.MAX_PITS) {
+            createPits();
+        }
+        for (int i = 0; i < pits.size(); i++) {
+            pits.get(i).setNumberOfStones(stoneArray[i]);
+            pits.get(i).setSelected(isHighlighted(i)); // Preserve selection state
+        }
+    }
+
+    /**
+     * Returns the number of pits repainted by the last update.
+     * @return a pit count
+     */
+    public int getRepaintedPits() {
+        return repaintedPits;
+    }
+
+    /**
+     * Returns the area requested for repainting by the last update.
+     * Swing may merge the requested regions before painting them.
+     * @return a number of pixels
+     */
+    public long getRepaintedPixels() {
+        return repaintedPixels;
+    }
+
+    /**
+     * Creates the pits and Mancalas at their positions on the board.
+     */
+    private void createPits() {
         pits = new ArrayList<>();
         final int PIT_HEIGHT = 150;
         final int PIT_WIDTH = 80;
+        final int PIT_SPACING = PIT_WIDTH + PIT_WIDTH/4;
         final int TOP_Y = 30;
         final int BOT_Y = 290;
 
         for (int i = 0; i < model.MAX_PITS; i++) {
             // Pits A
             if (i < model.PLAYER_A_PIT) {
-                StonePit pit = new StonePit((i + 1) * (PIT_WIDTH + PIT_WIDTH/4) + PIT_WIDTH/2, BOT_Y, PIT_WIDTH, PIT_HEIGHT);
-                pit.setNumberOfStones(stoneArray[i]);
+                StonePit pit = new StonePit((i + 1) * PIT_SPACING + PIT_WIDTH/2, BOT_Y, PIT_WIDTH, PIT_HEIGHT);
                 addPit(pit);
-                // Preserve selection state
-                if (i == selectedPit) {
-                    pit.setSelected(true);
-                }
             }
 
             // Mancala A
             else if (i == model.PLAYER_A_PIT) {
-                StonePit pit = new StonePit(7 * (PIT_WIDTH + PIT_WIDTH/4) + PIT_WIDTH/2, 60, PIT_WIDTH, 3*PIT_HEIGHT-100); // Mancala B
+                StonePit pit = new StonePit((model.PLAYER_A_PIT + 1) * PIT_SPACING + PIT_WIDTH/2, 60, PIT_WIDTH, 3*PIT_HEIGHT-100);
                 addPit(pit);
             }
 
             // Pit B
             else if (i < model.PLAYER_B_PIT) {
-                StonePit pit = new StonePit((13 - i) * (PIT_WIDTH + PIT_WIDTH/4) + PIT_WIDTH/2, TOP_Y, PIT_WIDTH, PIT_HEIGHT);
-                pit.setNumberOfStones(stoneArray[i]);
+                StonePit pit = new StonePit((model.PLAYER_B_PIT - i) * PIT_SPACING + PIT_WIDTH/2, TOP_Y, PIT_WIDTH, PIT_HEIGHT);
                 addPit(pit);
-                // Preserve selection state
-                if (i == selectedPit) {
-                    pit.setSelected(true);
-                }
             }
 
             // Mancala B
@@ -104,51 +148,74 @@ public class MancalaView extends JComponent implements ChangeListener, MancalaCo
     }
 
     /** Customizes the painting of this component by implementing FormatStrategy.
+     * The cached static layer is copied and the dynamic layer is drawn over it.
+     * With metrics enabled, the frame time is recorded as {@code view.paintComponent}
+     * and the time to render the static layer as {@code view.staticLayer}.
      *
      * @param g the <code>Graphics</code> object to paint.
      */
     @Override
     public void paintComponent(Graphics g) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
         super.paintComponent(g);
         Graphics2D g2 = (Graphics2D) g;
-        g.drawImage(boardFormat.backgroundImg(), 0, 0, this);
-
-        // Show player's turns
-        String turnInfo = "";
-        String finalScore = "";
-
-        if (model.getState() == GameState.PLAYING) {
-            if (model.getPlayer() == Player.A) {
-                turnInfo = "Player A's Turn";
-            }
-            else {
-                turnInfo = "Player B's Turn";
-            }
+        Image layer = layerCached ? getStaticLayer() : null;
+        if (layer != null) {
+            g.drawImage(layer, 0, 0, null);
         }
+        else {
+            paintStaticLayer(g2);
+        }
+        paintDynamicLayer(g2);
+        if (Metrics.ENABLED) FRAME_TIME.record(System.nanoTime() - start);
+    }
 
-        if (model.getState() == GameState.COMPLETE) {
-            turnInfo = "Final Score: ";
-            finalScore = "Player A's " + model.getScoreCard(Player.A) +
-                    " - Player B's " + model.getScoreCard(Player.B);
+    /**
+     * Returns the static layer for the current format and size, rendering it if needed.
+     * A layer whose background image is still loading is not kept, so it is rendered again
+     * once the image has arrived.
+     * @return the static layer, or null if the component has no area
+     */
+    private Image getStaticLayer() {
+        int w = getWidth();
+        int h = getHeight();
+        if (w <= 0 || h <= 0) return null;
+        if (staticLayer != null && layerFormat == boardFormat
+                && staticLayer.getWidth() == w && staticLayer.getHeight() == h) {
+            return staticLayer;
         }
 
-        g2.setColor(boardFormat.getColor()); // Set text color
-        g2.setFont(boardFormat.getFont());
-        g2.drawString(turnInfo, (getWidth()/2)-200,getHeight()/2); //print turn information
-        g2.drawString(finalScore,(getWidth()/2)-200,getHeight()/2+20);
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        // Opaque, so compositing the layer is a plain copy like drawing the background was
+        BufferedImage layer = config == null ? new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB)
+                : config.createCompatibleImage(w, h, Transparency.OPAQUE);
+        Graphics2D g = layer.createGraphics();
+        g.setColor(getBackground() != null ? getBackground() : Color.WHITE); // Under a smaller background
+        g.fillRect(0, 0, w, h);
+        boolean complete = paintStaticLayer(g);
+        g.dispose();
+        staticLayer = complete ? layer : null;
+        layerFormat = boardFormat;
+        if (Metrics.ENABLED) LAYER_TIME.record(System.nanoTime() - start);
+        return layer;
+    }
 
-        for(int i = 0; i < pits.size(); i++) {
+    /**
+     * Paints the parts of the board that only change with the format or size: the background,
+     * the pit shapes and the pit and Mancala labels.
+     * @param g2 graphics
+     * @return false if the background image is not fully loaded yet
+     */
+    private boolean paintStaticLayer(Graphics2D g2) {
+        boolean complete = g2.drawImage(boardFormat.backgroundImg(), 0, 0, this);
+        g2.setFont(boardFormat.getFont());
+        for (int i = 0; i < pits.size(); i++) {
             StonePit currentPit = this.pits.get(i);
             StringBuilder label = new StringBuilder();
             int rotateY = currentPit.getY() + currentPit.getHeight()* 2/3;
-
-            currentPit.draw(g2);
+            currentPit.fillShape(g2);
             g2.setColor(boardFormat.getColor());
-            g2.setFont(boardFormat.getFont());
-
-            if (currentPit.isSelected()) {
-                currentPit.drawSelection(g2);
-            }
 
             if (i <= model.PLAYER_A_PIT) {
                 label.append("A");
@@ -156,7 +223,7 @@ public class MancalaView extends JComponent implements ChangeListener, MancalaCo
                     int rotateX = currentPit.getX() + currentPit.getWidth() + 25;
                     label.insert(0, "MANCALA  ");
                     g2.rotate(-Math.PI / 2, rotateX, rotateY);
-                    g.drawString(label.toString(), rotateX, rotateY);
+                    g2.drawString(label.toString(), rotateX, rotateY);
                     g2.rotate(Math.PI / 2, rotateX, rotateY);
                 }
                 else {
@@ -170,15 +237,76 @@ public class MancalaView extends JComponent implements ChangeListener, MancalaCo
                     int rotateX = currentPit.getX() - 10;
                     label.insert(0, "MANCALA  ");
                     g2.rotate(-Math.PI / 2, rotateX, rotateY);
-                    g.drawString(label.toString(), rotateX, rotateY);
+                    g2.drawString(label.toString(), rotateX, rotateY);
                     g2.rotate(Math.PI / 2, rotateX, rotateY);
                 } else {
-                    label.append(i - 6);
-                    g2.setColor(boardFormat.getColor());
+                    label.append(i - model.PLAYER_A_PIT);
                     g2.drawString(label.toString(), currentPit.getX() + currentPit.getWidth()/3, currentPit.getY() - 5);
                 }
             }
         }
+        return complete;
+    }
+
+    /**
+     * Paints the parts of the board that change during a game: the turn information and the
+     * stones and selection of the pits inside the repainted region.
+     * @param g2 graphics
+     */
+    private void paintDynamicLayer(Graphics2D g2) {
+        // Show player's turns
+        String turnInfo = "";
+        String finalScore = "";
+
+        if (model.getState() == GameState.PLAYING) {
+            if (model.getPlayer() == Player.A) {
+                turnInfo = "Player A's Turn";
+            }
+            else {
+                turnInfo = "Player B's Turn";
+            }
+        }
+
+        if (model.getState() == GameState.COMPLETE) {
+            turnInfo = "Final Score: ";
+            finalScore = "Player A's " + model.getScoreCard(Player.A) +
+                    " - Player B's " + model.getScoreCard(Player.B);
+        }
+
+        g2.setColor(boardFormat.getColor()); // Set text color
+        g2.setFont(boardFormat.getFont());
+        g2.drawString(turnInfo, (getWidth()/2)-200,getHeight()/2); //print turn information
+        g2.drawString(finalScore,(getWidth()/2)-200,getHeight()/2+20);
+
+        Rectangle clip = g2.getClipBounds();
+        for (StonePit currentPit : pits) {
+            // Skip pits outside of the repainted region
+            if (clip == null || clip.intersects(currentPit.getRepaintBounds())) {
+                currentPit.fillStones(g2);
+                if (currentPit.isSelected()) {
+                    currentPit.drawSelection(g2);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets whether the static layer is cached in an offscreen image or painted on every frame.
+     * Painting it on every frame is only useful to compare frame times.
+     * @param cached true to cache the static layer
+     */
+    public void setStaticLayerCached(boolean cached) {
+        layerCached = cached;
+        staticLayer = null;
+        repaint();
+    }
+
+    /**
+     * Checks whether the static layer is cached in an offscreen image.
+     * @return true if the static layer is cached
+     */
+    public boolean isStaticLayerCached() {
+        return layerCached;
     }
 
     /**
@@ -191,21 +319,105 @@ public class MancalaView extends JComponent implements ChangeListener, MancalaCo
 
     /**
      * Updates the view whenever the model notifies it of changes.
+     * Only the pits whose stones or selection changed are repainted, plus the turn
+     * information when the player or game state changed.
      * This method is part of the Observer pattern.
      */
     @Override
     public void stateChanged(ChangeEvent e) {
         setVisibility(true);
-        updateGame();
+        boolean rebuild = pits.size() != model.MAX_PITS || model.getFormat() != boardFormat;
+        if (model.getFormat().getClass() != boardFormat.getClass()) {
+            FormatAssets.evict(boardFormat); // Release the images of the previous format
+        }
         this.boardFormat = model.getFormat();
-        for (StonePit pit: pits) {
-            boardFormat.formatShape(pit);
+
+        PositionSnapshot current = model.getSnapshot();
+        hintPit = -1; // A hint is only valid for the position it was given for
+        repaintedPits = 0;
+        repaintedPixels = 0;
+        if (rebuild) {
+            staticLayer = null; // The pit shapes are formatted again
+            current.copyPits(stoneArray);
+            updateGame();
+            for (StonePit pit: pits) {
+                boardFormat.formatShape(pit);
+            }
+            repaintedPits = pits.size();
+            repaintedPixels = (long) getWidth() * getHeight();
+            repaint();
         }
-        stoneArray = model.getPits();
-        for(int i = 0; i < pits.size(); i++) {
-            pits.get(i).setNumberOfStones(stoneArray[i]);
+        else {
+            for (int i = 0; i < pits.size(); i++) {
+                StonePit pit = pits.get(i);
+                int stones = current.getStones(i);
+                if (stoneArray[i] == stones && pit.isSelected() == isHighlighted(i)) continue;
+
+                // Cover both the old and the new stones, as the stone column grows with the count
+                Rectangle dirty = pit.getRepaintBounds();
+                stoneArray[i] = stones;
+                pit.setNumberOfStones(stones);
+                pit.setSelected(isHighlighted(i));
+                dirty.add(pit.getRepaintBounds());
+                repaintedPits++;
+                repaintRegion(dirty);
+            }
         }
-        repaint();
+
+        if (current.getPlayer() != shownPlayer || current.getState() != shownState) {
+            shownPlayer = current.getPlayer();
+            shownState = current.getState();
+            if (!rebuild) repaintRegion(getTurnInfoBounds());
+        }
+    }
+
+    /**
+     * Highlights a suggested move until the model changes.
+     * @param pit the pit to highlight, or -1 for none
+     */
+    public void setHintPit(int pit) {
+        int previous = hintPit;
+        hintPit = pit;
+        for (int i : new int[]{previous, pit}) {
+            if (i < 0 || i >= pits.size()) continue;
+            StonePit shown = pits.get(i);
+            shown.setSelected(isHighlighted(i));
+            repaint(shown.getRepaintBounds());
+        }
+    }
+
+    /**
+     * Returns the highlighted suggested move.
+     * @return a pit index, or -1 for none
+     */
+    public int getHintPit() {
+        return hintPit;
+    }
+
+    /**
+     * Checks if a pit is drawn as selected, either by the player or as a hint.
+     */
+    private boolean isHighlighted(int pit) {
+        return pit == selectedPit || pit == hintPit;
+    }
+
+    /**
+     * Requests a repaint of a region and counts its pixels.
+     * @param r the region to repaint
+     */
+    private void repaintRegion(Rectangle r) {
+        repaintedPixels += (long) r.width * r.height;
+        repaint(r);
+    }
+
+    /**
+     * Returns the region of the turn information and final score text.
+     * @return a rectangle around the text
+     */
+    private Rectangle getTurnInfoBounds() {
+        int x = getWidth() / 2 - 200;
+        int y = getHeight() / 2 - boardFormat.getFont().getSize() - 4;
+        return new Rectangle(x, y, getWidth() - x, boardFormat.getFont().getSize() + 32);
     }
 
     /** Notifies the model when a player makes a move. */
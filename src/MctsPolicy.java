@@ -0,0 +1,52 @@
+import java.util.SplittableRandom;
+
+/**
+ * A concrete policy that plays the most visited pit of a Monte Carlo tree search
+ * with a time budget per move.
+ * The tree follows every move played, its own and the opponent's, so the subtree of the
+ * position reached is reused by the next search. The search is seeded from the random source
+ * of the first call, so a simulation seeds its playouts from its own seed.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class MctsPolicy implements Policy {
+    private static final int CAPACITY = 1 << 16;
+    private final long millis;
+    private MctsSearch search;
+
+    /**
+     * Constructs a Monte Carlo policy.
+     * @param millis the time budget per move in milliseconds
+     */
+    public MctsPolicy(long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * Chooses the pit played most often by the search.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @param random a random source, seeding the search on the first call
+     * @return a legal pit index
+     */
+    @Override
+    public int choose(int[] pits, int side, SplittableRandom random) {
+        if (search == null) {
+            search = new MctsSearch(CAPACITY, MctsSearch.DEFAULT_EXPLORATION, random.nextLong());
+        }
+        return search.search(pits, side, millis).getBestPit();
+    }
+
+    /**
+     * Moves the root of the tree along a played move. The next search keeps the tree only if
+     * it is rooted at the position searched, so moves of other games are harmless.
+     * @param pits the stones in every pit before the move
+     * @param pit the pit played
+     * @param side the side that played it
+     */
+    @Override
+    public void played(int[] pits, int pit, int side) {
+        if (search != null) search.advance(pit);
+    }
+}
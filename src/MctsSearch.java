@@ -0,0 +1,386 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A Monte Carlo tree search that picks a pit by playing random games.
+ * Each iteration walks down the tree choosing children by UCT, expands one untried move,
+ * plays the game out with uniformly random moves and credits the result to every node on the
+ * path. A node's result is counted for the side that played the move into it, so a free move,
+ * where the same side moves again, needs no special case. The pit played most often is chosen.
+ * <p>
+ * Nodes are kept in preallocated parallel arrays, {@link #BYTES_PER_NODE} bytes per node, and
+ * freed nodes go to a free list, so expanding the tree never allocates. After a move is played,
+ * {@link #advance(int)} keeps the subtree of that move as the new root and recycles the rest,
+ * so the next search starts from the playouts already made. When the pool is full, the tree
+ * stops growing and iterations play out from the deepest node reached.
+ * An instance is not thread-safe; {@link ParallelMctsSearch} runs several of them at once.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class MctsSearch {
+    /** The memory of one node: three links, a visit count, a result sum, an untried move mask, a pit, a side and a slot of the stack used to free subtrees. */
+    public static final int BYTES_PER_NODE = 4 + 4 + 4 + 4 + 8 + 8 + 1 + 1 + 4;
+    /** The exploration constant of UCT, the square root of two. */
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+    private static final int NONE = -1;
+    private static final long CHECK_INTERVAL = 256;
+
+    private final BoardEngine engine;
+    private final int capacity;
+    private final double exploration;
+    private final AtomicBoolean stopSignal;
+    private final SplittableRandom random;
+
+    // The node pool, one entry per node
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling; // Also links the free list
+    private final int[] visits;
+    private final double[] results;
+    private final long[] untried;
+    private final byte[] pit;
+    private final byte[] mover;
+    private final int[] stack;
+    private int used;
+    private int free = NONE;
+    private int live;
+
+    private final int[] rootPits;
+    private final int[] board;
+    private int root = NONE;
+    private int rootSide;
+    private int maxDepth;
+
+    /**
+     * Constructs a search on the standard board.
+     * @param capacity the most nodes in the tree
+     * @param exploration the UCT exploration constant
+     * @param seed the seed of the random playouts
+     */
+    public MctsSearch(int capacity, double exploration, long seed) {
+        this(BoardEngine.STANDARD, capacity, exploration, seed, new AtomicBoolean());
+    }
+
+    /**
+     * Constructs a search.
+     * @param engine the engine playing the moves
+     * @param capacity the most nodes in the tree
+     * @param exploration the UCT exploration constant
+     * @param seed the seed of the random playouts
+     * @param stopSignal stops the search when set, shared with other searches
+     */
+    public MctsSearch(BoardEngine engine, int capacity, double exploration, long seed, AtomicBoolean stopSignal) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        if (engine.getPitCount() > Long.SIZE) {
+            throw new IllegalArgumentException("too many pits for a move mask");
+        }
+        this.engine = engine;
+        this.capacity = capacity;
+        this.exploration = exploration;
+        this.stopSignal = stopSignal;
+        this.random = new SplittableRandom(seed);
+        parent = new int[capacity];
+        firstChild = new int[capacity];
+        nextSibling = new int[capacity];
+        visits = new int[capacity];
+        results = new double[capacity];
+        untried = new long[capacity];
+        pit = new byte[capacity];
+        mover = new byte[capacity];
+        stack = new int[capacity];
+        rootPits = new int[engine.getPitCount()];
+        board = new int[engine.getPitCount()];
+    }
+
+    /**
+     * Searches a position until the time budget runs out or the stop signal is set.
+     * The tree is kept if it is rooted at the same position, otherwise it is rebuilt.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param millis the time budget in milliseconds
+     * @return the most played pit, its expected result in thousandths for the side to move,
+     * the depth of the tree and the number of playouts
+     */
+    public SearchResult search(int[] pits, int side, long millis) {
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000L;
+        setRoot(pits, side);
+
+        long playouts = 0;
+        do {
+            for (int i = 0; i < CHECK_INTERVAL; i++) {
+                iterate();
+            }
+            playouts += CHECK_INTERVAL;
+        } while (System.nanoTime() < deadline && !stopSignal.get());
+
+        int best = bestChild();
+        int score = best == NONE ? 0 : (int) (1000 * results[best] / visits[best]);
+        return new SearchResult(best == NONE ? -1 : pit[best], score, maxDepth, playouts, System.nanoTime() - start);
+    }
+
+    /**
+     * Moves the root to the child for a pit that was played, keeping its subtree for the next search
+     * and recycling every other node. Without a tree or a child for the pit, the tree is cleared.
+     * @param played the pit that was played from the root position
+     */
+    public void advance(int played) {
+        if (root == NONE) return;
+        int kept = NONE;
+        for (int c = firstChild[root]; c != NONE; c = nextSibling[c]) {
+            if (pit[c] == played) kept = c;
+        }
+        if (kept == NONE) {
+            clear();
+            return;
+        }
+
+        // Unlink the kept child so freeing the old root leaves its subtree alone
+        int prev = NONE;
+        for (int c = firstChild[root]; c != kept; c = nextSibling[c]) {
+            prev = c;
+        }
+        if (prev == NONE) firstChild[root] = nextSibling[kept];
+        else nextSibling[prev] = nextSibling[kept];
+        freeSubtree(root);
+
+        int flags = engine.move(rootPits, played, rootSide);
+        rootSide = BoardEngine.nextSide(rootSide, flags);
+        root = kept;
+        parent[root] = NONE;
+        nextSibling[root] = NONE;
+        maxDepth = 0;
+    }
+
+    /** Frees every node. */
+    public void clear() {
+        used = 0;
+        free = NONE;
+        live = 0;
+        root = NONE;
+        maxDepth = 0;
+    }
+
+    /**
+     * Returns the visits of the root's child for each pit.
+     * @param counts receives the visits per pit, zero for pits not tried
+     */
+    public void getRootVisits(long[] counts) {
+        Arrays.fill(counts, 0);
+        if (root == NONE) return;
+        for (int c = firstChild[root]; c != NONE; c = nextSibling[c]) {
+            counts[pit[c]] = visits[c];
+        }
+    }
+
+    /**
+     * Returns the summed results of the root's child for each pit, counted for the side to move.
+     * @param sums receives the result sums per pit, zero for pits not tried
+     */
+    public void getRootResults(double[] sums) {
+        Arrays.fill(sums, 0);
+        if (root == NONE) return;
+        for (int c = firstChild[root]; c != NONE; c = nextSibling[c]) {
+            sums[pit[c]] = results[c];
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     * @return a node count
+     */
+    public int getNodeCount() {
+        return live;
+    }
+
+    /**
+     * Returns the number of playouts through the root, including those kept from earlier searches.
+     * @return a playout count
+     */
+    public int getRootVisits() {
+        return root == NONE ? 0 : visits[root];
+    }
+
+    /**
+     * Returns the most nodes in the tree.
+     * @return a node count
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the UCT exploration constant.
+     * @return the exploration constant
+     */
+    public double getExploration() {
+        return exploration;
+    }
+
+    /**
+     * Keeps the tree if it is rooted at a position, otherwise starts a new tree there.
+     */
+    private void setRoot(int[] pits, int side) {
+        if (root != NONE && side == rootSide && Arrays.equals(pits, rootPits)) return;
+        clear();
+        System.arraycopy(pits, 0, rootPits, 0, rootPits.length);
+        rootSide = side;
+        root = allocate();
+        parent[root] = NONE;
+        nextSibling[root] = NONE;
+        mover[root] = (byte) (side ^ 1);
+        untried[root] = engine.isOver(pits) ? 0 : legalMoves(pits, side);
+    }
+
+    /**
+     * Runs one selection, expansion, playout and backpropagation.
+     */
+    private void iterate() {
+        int[] b = board;
+        System.arraycopy(rootPits, 0, b, 0, b.length);
+        int side = rootSide;
+        int node = root;
+        int depth = 0;
+        boolean over = untried[root] == 0 && firstChild[root] == NONE;
+
+        // Selection: descend through fully expanded nodes
+        while (untried[node] == 0 && firstChild[node] != NONE) {
+            node = select(node);
+            int flags = engine.move(b, pit[node], side);
+            side = BoardEngine.nextSide(side, flags);
+            over = (flags & BoardEngine.GAME_OVER) != 0;
+            depth++;
+        }
+
+        // Expansion: add one untried move, if the pool has room
+        if (untried[node] != 0) {
+            int child = allocate();
+            if (child != NONE) {
+                int move = randomBit(untried[node]);
+                untried[node] &= ~(1L << move);
+                parent[child] = node;
+                nextSibling[child] = firstChild[node];
+                firstChild[node] = child;
+                pit[child] = (byte) move;
+                mover[child] = (byte) side;
+                int flags = engine.move(b, move, side);
+                side = BoardEngine.nextSide(side, flags);
+                over = (flags & BoardEngine.GAME_OVER) != 0;
+                untried[child] = over ? 0 : legalMoves(b, side);
+                node = child;
+                depth++;
+            }
+        }
+        maxDepth = Math.max(maxDepth, depth);
+
+        // Playout: random moves to the end of the game
+        while (!over) {
+            int flags = engine.move(b, randomBit(legalMoves(b, side)), side);
+            side = BoardEngine.nextSide(side, flags);
+            over = (flags & BoardEngine.GAME_OVER) != 0;
+        }
+
+        // Backpropagation: credit the side that moved into each node
+        int diff = b[engine.store(BoardEngine.SIDE_A)] - b[engine.store(BoardEngine.SIDE_B)];
+        double resultA = diff > 0 ? 1 : diff < 0 ? 0 : 0.5;
+        for (int n = node; n != NONE; n = parent[n]) {
+            visits[n]++;
+            results[n] += mover[n] == BoardEngine.SIDE_A ? resultA : 1 - resultA;
+        }
+    }
+
+    /**
+     * Returns the child of a node with the highest UCT value.
+     */
+    private int select(int node) {
+        double logVisits = Math.log(visits[node]);
+        int best = NONE;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c]) {
+            double n = visits[c];
+            double value = results[c] / n + exploration * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the most visited child of the root, or NONE if it has none.
+     */
+    private int bestChild() {
+        int best = NONE;
+        for (int c = firstChild[root]; c != NONE; c = nextSibling[c]) {
+            if (best == NONE || visits[c] > visits[best]) best = c;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the legal pits of a side as a bit mask.
+     */
+    private long legalMoves(int[] pits, int side) {
+        long mask = 0;
+        for (int p = 0; p < pits.length; p++) {
+            if (engine.isLegal(pits, p, side)) mask |= 1L << p;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the index of a random set bit of a non-empty mask.
+     */
+    private int randomBit(long mask) {
+        for (int skip = random.nextInt(Long.bitCount(mask)); skip > 0; skip--) {
+            mask &= mask - 1;
+        }
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    /**
+     * Takes a node from the free list or the unused part of the pool.
+     * @return a cleared node, or NONE if the pool is full
+     */
+    private int allocate() {
+        int node;
+        if (free != NONE) {
+            node = free;
+            free = nextSibling[node];
+        }
+        else if (used < capacity) {
+            node = used++;
+        }
+        else {
+            return NONE;
+        }
+        firstChild[node] = NONE;
+        visits[node] = 0;
+        results[node] = 0;
+        untried[node] = 0;
+        live++;
+        return node;
+    }
+
+    /**
+     * Returns a node and all of its descendants to the free list.
+     */
+    private void freeSubtree(int node) {
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int n = stack[--top];
+            for (int c = firstChild[n]; c != NONE; c = nextSibling[c]) {
+                stack[top++] = c;
+            }
+            nextSibling[n] = free;
+            free = n;
+            live--;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A registry of the counters and latency histograms measuring the hot paths.
+ * Metrics are switched on with the system property {@code mancala.metrics=true}. The switch is
+ * the constant {@link #ENABLED}, so with metrics off the JIT compiler removes the timing code
+ * from the instrumented methods entirely. With metrics on, every metric is registered with the
+ * platform MBean server under the domain {@code mancala}, and a report is written at exit to
+ * the file named by the system property {@code mancala.metrics.file}, if set.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class Metrics implements MetricsMBean {
+    /** True if the system property {@code mancala.metrics} is {@code true}. */
+    public static final boolean ENABLED = Boolean.getBoolean("mancala.metrics");
+    private static final String DOMAIN = "mancala";
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    // Per observer class, the histogram of the time spent notifying it
+    private static final ClassValue<LatencyHistogram> LISTENERS = new ClassValue<LatencyHistogram>() {
+        @Override
+        protected LatencyHistogram computeValue(Class<?> type) {
+            return histogram("listener." + type.getName());
+        }
+    };
+
+    static {
+        if (ENABLED) {
+            register(new Metrics(), "type=Metrics");
+            String file = System.getProperty("mancala.metrics.file");
+            if (file != null) {
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        dump(Paths.get(file));
+                    } catch (IOException e) {
+                        System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+                    }
+                }, "metrics-dump"));
+            }
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the histogram with a name, creating it on first use.
+     * @param name the name of the histogram
+     * @return a histogram
+     */
+    public static LatencyHistogram histogram(String name) {
+        return HISTOGRAMS.computeIfAbsent(name, n -> {
+            LatencyHistogram h = new LatencyHistogram(n);
+            if (ENABLED) register(h, "type=Latency,name=" + ObjectName.quote(n));
+            return h;
+        });
+    }
+
+    /**
+     * Returns the counter with a name, creating it on first use.
+     * @param name the name of the counter
+     * @return a counter
+     */
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> {
+            Counter c = new Counter(n);
+            if (ENABLED) register(c, "type=Counter,name=" + ObjectName.quote(n));
+            return c;
+        });
+    }
+
+    /**
+     * Returns the histogram of the time spent notifying observers of a class.
+     * @param listener an observer
+     * @return the histogram named {@code listener.} followed by the observer's class name
+     */
+    public static LatencyHistogram listener(Object listener) {
+        return LISTENERS.get(listener.getClass());
+    }
+
+    /**
+     * Writes a report of every metric, one line per metric, times in nanoseconds.
+     * @param out receives the report
+     */
+    public static void dump(Writer out) {
+        PrintWriter pw = new PrintWriter(out);
+        pw.printf("%-60s %12s %12s %12s %12s %12s %12s%n", "histogram", "count", "mean", "p50", "p99", "p99.9", "max");
+        for (LatencyHistogram h : HISTOGRAMS.values()) {
+            pw.printf("%-60s %12d %12.0f %12d %12d %12d %12d%n", h.getName(), h.getCount(), h.getMean(),
+                    h.getP50(), h.getP99(), h.getP999(), h.getMax());
+        }
+        pw.printf("%-60s %12s%n", "counter", "count");
+        for (Counter c : COUNTERS.values()) {
+            pw.printf("%-60s %12d%n", c.getName(), c.getCount());
+        }
+        pw.flush();
+    }
+
+    /**
+     * Writes a report of every metric to a file.
+     * @param file the path of the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public static void dump(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            dump(out);
+        }
+    }
+
+    /** Resets every metric. */
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+        COUNTERS.values().forEach(Counter::reset);
+    }
+
+    /**
+     * Returns one line per metric, as written by {@link #dump(Writer)}.
+     * @return the lines of a report
+     */
+    @Override
+    public String[] getSummary() {
+        StringWriter out = new StringWriter();
+        dump(out);
+        return out.toString().split(System.lineSeparator());
+    }
+
+    /**
+     * Writes a report of every metric to a file.
+     * @param file the path of the file, replaced if it exists
+     */
+    @Override
+    public void dumpTo(String file) {
+        try {
+            dump(Paths.get(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Resets every metric. */
+    @Override
+    public void resetAll() {
+        reset();
+    }
+
+    /**
+     * Registers a management bean under the {@code mancala} domain, once per name.
+     */
+    private static void register(Object bean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name)) server.registerMBean(bean, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register " + properties, e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * The management interface of the {@link Metrics} registry, as seen through JMX.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public interface MetricsMBean {
+
+    /**
+     * Returns one line per metric, as written by {@link #dumpTo(String)}.
+     * @return the lines of a report
+     */
+    String[] getSummary();
+
+    /**
+     * Writes a report of every metric to a file.
+     * @param file the path of the file, replaced if it exists
+     */
+    void dumpTo(String file);
+
+    /** Resets every metric. */
+    void resetAll();
+}
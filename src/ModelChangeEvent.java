@@ -0,0 +1,86 @@
+import javax.swing.event.ChangeEvent;
+
+/**
+ * A change event that carries what changed in the model since the previous event:
+ * the pits whose stone counts changed, and whether the player, game state or format changed.
+ * Events are immutable, so they can be queued and delivered on another thread.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class ModelChangeEvent extends ChangeEvent {
+    private static final long serialVersionUID = 1L;
+    private final long changedPits;
+    private final boolean playerChanged;
+    private final boolean stateChanged;
+    private final boolean formatChanged;
+
+    /**
+     * Constructs an event.
+     * @param source the model that changed
+     * @param changedPits a bit mask with bit i set if pit i changed
+     * @param playerChanged true if the current player changed
+     * @param stateChanged true if the game state changed
+     * @param formatChanged true if the board format changed
+     */
+    public ModelChangeEvent(Object source, long changedPits, boolean playerChanged,
+                            boolean stateChanged, boolean formatChanged) {
+        super(source);
+        this.changedPits = changedPits;
+        this.playerChanged = playerChanged;
+        this.stateChanged = stateChanged;
+        this.formatChanged = formatChanged;
+    }
+
+    /**
+     * Returns an event describing both this change and a later one.
+     * @param later an event that happened after this one
+     * @return the combined event
+     */
+    public ModelChangeEvent merge(ModelChangeEvent later) {
+        return new ModelChangeEvent(getSource(), changedPits | later.changedPits,
+                playerChanged || later.playerChanged, stateChanged || later.stateChanged,
+                formatChanged || later.formatChanged);
+    }
+
+    /**
+     * Returns the pits whose stone counts changed.
+     * @return a bit mask with bit i set if pit i changed
+     */
+    public long getChangedPits() {
+        return changedPits;
+    }
+
+    /**
+     * Checks if the stone count of a pit changed.
+     * @param pit a pit index
+     * @return true if the pit changed
+     */
+    public boolean isPitChanged(int pit) {
+        return (changedPits >>> pit & 1) != 0;
+    }
+
+    /**
+     * Checks if the current player changed.
+     * @return true if the player changed
+     */
+    public boolean isPlayerChanged() {
+        return playerChanged;
+    }
+
+    /**
+     * Checks if the game state changed.
+     * @return true if the state changed
+     */
+    public boolean isStateChanged() {
+        return stateChanged;
+    }
+
+    /**
+     * Checks if the board format changed.
+     * @return true if the format changed
+     */
+    public boolean isFormatChanged() {
+        return formatChanged;
+    }
+}
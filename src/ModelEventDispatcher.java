@@ -0,0 +1,109 @@
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * An observer that forwards model changes to another observer through a bounded queue.
+ * Events are delivered by tasks run on an executor, so the observer can be notified off the
+ * thread that changes the model. When the queue is full, a new event is merged into the last
+ * queued one, so bursts of changes are coalesced instead of blocking the model.
+ * <p>
+ * With {@code SwingUtilities::invokeLater} and a capacity of 1, an observer receives at most
+ * one merged event per pass of the event dispatch thread.
+ * <p>
+ * With metrics enabled, the time spent delivering to the target is recorded under the target's
+ * class, and events merged into a full queue are counted as {@code dispatcher.merged}.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class ModelEventDispatcher implements ChangeListener {
+    private static final Counter MERGED = Metrics.counter("dispatcher.merged");
+    private final ChangeListener target;
+    private final Executor executor;
+    private final int capacity;
+    private final ArrayDeque<ChangeEvent> queue;
+    private boolean scheduled;
+
+    /**
+     * Constructs a dispatcher.
+     * @param target the observer receiving the events
+     * @param executor runs the delivery tasks
+     * @param capacity the most events waiting for delivery
+     */
+    public ModelEventDispatcher(ChangeListener target, Executor executor, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.target = target;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Queues an event and schedules its delivery.
+     * This method is part of the Observer pattern.
+     */
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        boolean schedule;
+        synchronized (queue) {
+            if (queue.size() >= capacity) {
+                queue.addLast(merge(queue.pollLast(), e));
+                if (Metrics.ENABLED) MERGED.increment();
+            }
+            else {
+                queue.addLast(e);
+            }
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Returns the observer receiving the events.
+     * @return an observer
+     */
+    public ChangeListener getTarget() {
+        return target;
+    }
+
+    /**
+     * Delivers queued events in order until the queue is empty.
+     */
+    private void drain() {
+        while (true) {
+            ChangeEvent e;
+            synchronized (queue) {
+                e = queue.pollFirst();
+                if (e == null) {
+                    scheduled = false;
+                    return;
+                }
+            }
+            if (Metrics.ENABLED) {
+                long start = System.nanoTime();
+                target.stateChanged(e);
+                Metrics.listener(target).record(System.nanoTime() - start);
+            }
+            else {
+                target.stateChanged(e);
+            }
+        }
+    }
+
+    /**
+     * Combines two events, keeping the typed changes when both carry them.
+     */
+    private static ChangeEvent merge(ChangeEvent earlier, ChangeEvent later) {
+        if (earlier instanceof ModelChangeEvent && later instanceof ModelChangeEvent) {
+            return ((ModelChangeEvent) earlier).merge((ModelChangeEvent) later);
+        }
+        return later;
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * A journal of the moves played on a board, for undo and redo to any depth.
+ * Each move is stored as a delta: the pit sown from, the number of stones sown, the side that
+ * moved, the result flags and the stones the move carried into the Mancalas by a capture or a
+ * sweep. All storage is preallocated in ring buffers, so recording, undoing and redoing a move
+ * never allocate or copy the board, and cost time in proportion to the stones the move touched.
+ * When the ring is full, the oldest moves are forgotten.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class MoveJournal {
+    private final BoardEngine engine;
+    private final int capacity;
+    // Every transfer empties a different pit, so a move makes at most one per pit outside the Mancalas
+    private final int maxTransfers;
+    private final int[] origins;
+    private final int[] stones;
+    private final int[] sides;
+    private final int[] flags;
+    private final int[] transfers;
+    // Per move, maxTransfers triples of pit, stones and Mancala
+    private final int[] tape;
+    private long base;
+    private long cursor;
+    private long top;
+    private int recording;
+
+    /**
+     * Constructs an empty journal for the standard board.
+     * @param capacity the most moves that can be undone
+     */
+    public MoveJournal(int capacity) {
+        this(BoardEngine.STANDARD, capacity);
+    }
+
+    /**
+     * Constructs an empty journal.
+     * @param engine the engine playing the moves
+     * @param capacity the most moves that can be undone
+     */
+    public MoveJournal(BoardEngine engine, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.engine = engine;
+        this.capacity = capacity;
+        this.maxTransfers = 2 * engine.getPitsPerSide();
+        origins = new int[capacity];
+        stones = new int[capacity];
+        sides = new int[capacity];
+        flags = new int[capacity];
+        transfers = new int[capacity];
+        tape = new int[capacity * maxTransfers * 3];
+    }
+
+    /**
+     * Plays a move with the engine and records it. Moves that were undone
+     * and not redone are discarded.
+     * @param pits the stones in every pit, updated in place
+     * @param pit the index of the pit to sow from
+     * @param side the side making the move
+     * @return the result flags of the move
+     */
+    public int record(int[] pits, int pit, int side) {
+        int slot = slot(cursor);
+        origins[slot] = pit;
+        stones[slot] = pits[pit];
+        sides[slot] = side;
+        transfers[slot] = 0;
+        recording = slot;
+        flags[slot] = engine.move(pits, pit, side, this);
+
+        top = ++cursor;
+        if (cursor - base > capacity) base = cursor - capacity;
+        return flags[slot];
+    }
+
+    /**
+     * Records stones moved into a Mancala by the move being recorded.
+     * Called by {@link BoardEngine#move(int[], int, int, MoveJournal)}.
+     * @param pit the pit the stones were taken from
+     * @param count the number of stones
+     * @param store the Mancala that received them
+     */
+    void transfer(int pit, int count, int store) {
+        int t = (recording * maxTransfers + transfers[recording]++) * 3;
+        tape[t] = pit;
+        tape[t + 1] = count;
+        tape[t + 2] = store;
+    }
+
+    /**
+     * Reverts the latest move that has not been undone.
+     * @param pits the stones in every pit, updated in place
+     * @return the side that had made the move, or -1 if there is nothing to undo
+     */
+    public int undo(int[] pits) {
+        if (!canUndo()) return -1;
+        int slot = slot(--cursor);
+        for (int i = transfers[slot] - 1; i >= 0; i--) {
+            int t = (slot * maxTransfers + i) * 3;
+            pits[tape[t + 2]] -= tape[t + 1];
+            pits[tape[t]] += tape[t + 1];
+        }
+        engine.unsow(pits, origins[slot], stones[slot], sides[slot]);
+        return sides[slot];
+    }
+
+    /**
+     * Plays again the latest move that was undone.
+     * @param pits the stones in every pit, updated in place
+     * @return the result flags of the move, or -1 if there is nothing to redo
+     */
+    public int redo(int[] pits) {
+        if (!canRedo()) return -1;
+        int slot = slot(cursor++);
+        engine.move(pits, origins[slot], sides[slot]);
+        return flags[slot];
+    }
+
+    /**
+     * Checks if a move can be undone.
+     * @return true if a recorded move is on the board
+     */
+    public boolean canUndo() {
+        return cursor > base;
+    }
+
+    /**
+     * Checks if a move can be redone.
+     * @return true if an undone move can be played again
+     */
+    public boolean canRedo() {
+        return top > cursor;
+    }
+
+    /**
+     * Returns the side that made the latest move on the board.
+     * @return a side, or -1 if no recorded move is on the board
+     */
+    public int getLastSide() {
+        return canUndo() ? sides[slot(cursor - 1)] : -1;
+    }
+
+    /**
+     * Returns the result flags of the latest move on the board.
+     * @return the flags, or 0 if no recorded move is on the board
+     */
+    public int getLastFlags() {
+        return canUndo() ? flags[slot(cursor - 1)] : 0;
+    }
+
+    /**
+     * Returns the number of moves that can be undone.
+     * @return a move count
+     */
+    public int getUndoDepth() {
+        return (int) (cursor - base);
+    }
+
+    /**
+     * Returns the number of moves that can be redone.
+     * @return a move count
+     */
+    public int getRedoDepth() {
+        return (int) (top - cursor);
+    }
+
+    /** Forgets every recorded move. */
+    public void clear() {
+        base = 0;
+        cursor = 0;
+        top = 0;
+    }
+
+    private int slot(long move) {
+        return (int) (move % capacity);
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * A concrete rule variant for Kalah without captures.
+ * A last stone in the mover's Mancala earns a free move, and a last stone anywhere else
+ * simply stays there. When one side is empty, the stones left on the other side go to that
+ * side's Mancala.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class NoCaptureRules implements RuleVariant {
+    public static final String NAME = "no-capture";
+
+    /**
+     * Applies the free move and the end of game sweep.
+     * @param engine the engine that sowed the stones
+     * @param pits the stones in every pit, updated in place
+     * @param last the index of the pit that received the last stone
+     * @param side the side making the move
+     * @param journal receives the stones moved into the Mancalas, or null
+     * @return the result flags of the move
+     */
+    @Override
+    public int finish(BoardEngine engine, int[] pits, int last, int side, MoveJournal journal) {
+        int flags = last == engine.store(side) ? BoardEngine.FREE_MOVE : 0;
+        if (engine.isOver(pits)) {
+            engine.sweep(pits, journal);
+            flags |= BoardEngine.GAME_OVER;
+        }
+        return flags;
+    }
+
+    /**
+     * Returns the name of the variant.
+     * @return {@value #NAME}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * A concrete rule variant for Kalah without the end of game sweep.
+ * Free moves and captures are those of {@link KalahRules}, but when one side is empty the
+ * game ends with the stones left on the board uncounted, so only the Mancalas score.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class NoSweepRules implements RuleVariant {
+    public static final String NAME = "no-sweep";
+
+    /**
+     * Applies the free move and the empty pit capture, and ends the game without a sweep.
+     * @param engine the engine that sowed the stones
+     * @param pits the stones in every pit, updated in place
+     * @param last the index of the pit that received the last stone
+     * @param side the side making the move
+     * @param journal receives the stones moved into the Mancalas, or null
+     * @return the result flags of the move
+     */
+    @Override
+    public int finish(BoardEngine engine, int[] pits, int last, int side, MoveJournal journal) {
+        int flags = 0;
+        if (last == engine.store(side)) {
+            flags = BoardEngine.FREE_MOVE;
+        }
+        else if (engine.owner(last) == side && pits[last] == 1 && pits[engine.opposite(last)] > 0) {
+            engine.collect(pits, last, side, journal);
+            engine.collect(pits, engine.opposite(last), side, journal);
+            flags = BoardEngine.CAPTURE;
+        }
+        return engine.isOver(pits) ? flags | BoardEngine.GAME_OVER : flags;
+    }
+
+    /**
+     * Returns the name of the variant.
+     * @return {@value #NAME}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -1,6 +1,5 @@
 import java.awt.*;
 import java.awt.geom.*;
-import java.net.URL;
 /**
  * A concrete strategy class to format the board.
  * An OakBoardFormat implements the BoardFormat interface to define
@@ -10,6 +9,7 @@ import java.net.URL;
  * @version 1.0 11/18/2024
  */
 public class OakBoardFormat implements FormatStrategy {
+    private static final Font FONT = new Font("Arial", Font.BOLD, 24);
 
     /**
      * Sets the rectangle shape for a stone pit.
@@ -36,17 +36,16 @@ public class OakBoardFormat implements FormatStrategy {
      */
     @Override
     public Font getFont() {
-        return new Font("Arial", Font.BOLD, 24);
+        return FONT;
     }
 
     /**
-     * Returns the oak-themed background image to draw.
+     * Returns the oak-themed background image to draw, decoded once and cached.
      *
      * @return an image representing the oak board background
      */
     @Override
     public Image backgroundImg() {
-        URL imgURL = this.getClass().getResource("/board2.jpg");
-        return Toolkit.getDefaultToolkit().getImage(imgURL);
+        return FormatAssets.background(this, "/board2.jpg");
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An opening book with the results of the moves played from early positions.
+ * The book is built from game records: every position within the first moves of a game is
+ * keyed by its Zobrist hash, so transpositions share their statistics, and every move played
+ * from it counts the games, wins and draws of the side that played it.
+ * <p>
+ * The book file holds a 16-byte header and fixed-size entries sorted by hash and pit. It is
+ * memory-mapped when opened and a lookup is a binary search over the mapped entries, so the
+ * book is never loaded onto the heap.
+ * Usage: {@code java OpeningBook [records] [book] [maxPly] [minGames]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class OpeningBook {
+    private static final int MAGIC = 0x4D4F424B; // "MOBK"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    // Hash (8), games (4), wins (4), draws (4), pit (1) and padding (3)
+    private static final int ENTRY_BYTES = 24;
+    // Per move of a position: games, wins and draws
+    private static final int STATS = 3;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity() / ENTRY_BYTES;
+    }
+
+    /**
+     * Opens a book file by memory-mapping it.
+     * @param file a file written by {@link #build(Path, Path, int, int)}
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                throw new IOException("not an opening book: " + file);
+            }
+            long count = map.getLong(8);
+            if (count < 0 || map.capacity() != HEADER_BYTES + count * ENTRY_BYTES) {
+                throw new IOException("corrupt opening book: " + file);
+            }
+            return new OpeningBook(map.position(HEADER_BYTES).slice());
+        }
+    }
+
+    /**
+     * Builds a book from a game record file and writes it to a file.
+     * @param records a file written by {@link GameRecordWriter}
+     * @param file the book file to write
+     * @param maxPly the number of moves from the start of each game to include
+     * @param minGames the fewest games a move needs to be included
+     * @return the number of entries written
+     * @throws IOException if a file cannot be read or written
+     */
+    public static int build(Path records, Path file, int maxPly, int minGames) throws IOException {
+        Map<Long, int[]> positions = new HashMap<>();
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        long[] hashes = new long[maxPly];
+        int[] sides = new int[maxPly];
+        int[] moves = new int[maxPly];
+
+        try (GameRecordReader reader = new GameRecordReader(records)) {
+            reader.scan(new GameRecordVisitor() {
+                private int side;
+                private int ply;
+
+                @Override
+                public void beginGame(int stones) {
+                    BoardEngine.STANDARD.setStones(pits, stones);
+                    side = BoardEngine.SIDE_A;
+                    ply = 0;
+                }
+
+                @Override
+                public void move(int pit, int flags) {
+                    if (ply < maxPly) {
+                        hashes[ply] = Zobrist.hash(pits, side);
+                        sides[ply] = side;
+                        moves[ply] = pit;
+                    }
+                    ply++;
+                    BoardEngine.STANDARD.move(pits, pit, side);
+                    side = BoardEngine.nextSide(side, flags);
+                }
+
+                @Override
+                public void endGame() {
+                    int margin = pits[BoardEngine.PLAYER_A_PIT] - pits[BoardEngine.PLAYER_B_PIT];
+                    for (int i = 0; i < Math.min(ply, maxPly); i++) {
+                        int[] stats = positions.computeIfAbsent(hashes[i], k -> new int[BoardEngine.MAX_PITS * STATS]);
+                        int s = moves[i] * STATS;
+                        int result = sides[i] == BoardEngine.SIDE_A ? margin : -margin;
+                        stats[s]++;
+                        if (result > 0) stats[s + 1]++;
+                        if (result == 0) stats[s + 2]++;
+                    }
+                }
+            });
+        }
+
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "book", ".tmp");
+        try {
+            int count = write(positions, temp, minGames);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Writes the entries of the positions in hash order.
+     * @return the number of entries written
+     */
+    private static int write(Map<Long, int[]> positions, Path temp, int minGames) throws IOException {
+        long[] keys = new long[positions.size()];
+        int k = 0;
+        for (long key : positions.keySet()) {
+            keys[k++] = key;
+        }
+        Arrays.sort(keys);
+
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(0); // Entry count, filled in below
+            for (long key : keys) {
+                int[] stats = positions.get(key);
+                for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+                    int s = pit * STATS;
+                    if (stats[s] == 0 || stats[s] < minGames) continue;
+                    out.writeLong(key);
+                    out.writeInt(stats[s]);
+                    out.writeInt(stats[s + 1]);
+                    out.writeInt(stats[s + 2]);
+                    out.writeInt(pit << 24);
+                    count++;
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, count), 8);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the move with the best score in the book for a position.
+     * A move scores its wins plus half its draws per game; ties go to the move played most.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @return the pit to sow from, or -1 if the position is not in the book
+     */
+    public int bestMove(int[] pits, int side) {
+        long hash = Zobrist.hash(pits, side);
+        int best = -1;
+        double bestScore = -1;
+        int bestGames = 0;
+        for (int i = find(hash); i < size && entries.getLong(i * ENTRY_BYTES) == hash; i++) {
+            int at = i * ENTRY_BYTES;
+            int pit = entries.get(at + 20);
+            int games = entries.getInt(at + 8);
+            double score = (entries.getInt(at + 12) + entries.getInt(at + 16) * 0.5) / games;
+            if (!BoardEngine.STANDARD.isLegal(pits, pit, side)) continue; // A hash collision
+            if (score > bestScore || (score == bestScore && games > bestGames)) {
+                best = pit;
+                bestScore = score;
+                bestGames = games;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of games in the book that played a move from a position.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @param pit the pit sown from
+     * @return a game count, 0 if the move is not in the book
+     */
+    public int getGames(int[] pits, int side, int pit) {
+        long hash = Zobrist.hash(pits, side);
+        for (int i = find(hash); i < size && entries.getLong(i * ENTRY_BYTES) == hash; i++) {
+            if (entries.get(i * ENTRY_BYTES + 20) == pit) return entries.getInt(i * ENTRY_BYTES + 8);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of entries, one per position and move.
+     * @return an entry count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the first entry with a hash, or of the first larger one.
+     */
+    private int find(long hash) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.getLong(mid * ENTRY_BYTES) < hash) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Builds a book from a game record file and times lookups of the opening position.
+     * @param args optional record file, book file, maximum ply and minimum games per move
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        Path records = Path.of(args.length > 0 ? args[0] : "games.rec");
+        Path file = Path.of(args.length > 1 ? args[1] : "opening.book");
+        int maxPly = args.length > 2 ? Integer.parseInt(args[2]) : 12;
+        int minGames = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        long start = System.nanoTime();
+        int count = build(records, file, maxPly, minGames);
+        System.out.printf("%,d entries written to %s in %.1f s%n", count, file, (System.nanoTime() - start) / 1e9);
+
+        OpeningBook book = open(file);
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        for (int stones : new int[]{3, 4}) {
+            BoardEngine.STANDARD.setStones(pits, stones);
+            int lookups = 1_000_000;
+            int found = 0;
+            long t = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                found += book.bestMove(pits, BoardEngine.SIDE_A);
+            }
+            System.out.printf("%d stones: book move %d, %.0f ns/lookup (%d)%n", stones,
+                    book.bestMove(pits, BoardEngine.SIDE_A), (double) (System.nanoTime() - t) / lookups, found);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves every first move of a game: its exact value and a principal variation.
+ * Each first move is solved by MTD(f): a sequence of null-window tests, each proving a lower or
+ * an upper bound of the move's value, narrows the bounds until they meet. The tests are the
+ * jobs of a pool of {@link Solver} threads sharing one {@link DiskTranspositionTable}. A thread
+ * takes the move with the fewest tests running; when threads outnumber the open moves, extra
+ * threads test other values inside the same move's bounds, and every proven bound narrows the
+ * bounds of all of them.
+ * <p>
+ * The solver works in a directory that holds one table file per game and one solution file per opening.
+ * The solution file lists the proven bounds of every first move, from the first player's point
+ * of view, and the principal variation once a move is solved. It is replaced after every test
+ * and the table is flushed every {@link #CHECKPOINT_MILLIS}, so a stopped run resumes from its
+ * bounds and its table. Openings of the same game with other stone counts share the table.
+ * Usage: {@code java OpeningSolver [stones] [pitsPerSide] [variant] [dir] [tableBits] [threads] [endgame]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class OpeningSolver implements AutoCloseable {
+    public static final long CHECKPOINT_MILLIS = 10 * 60_000L;
+    // A job that follows the principal variation of a solved move instead of testing a value
+    private static final int VARIATION = Integer.MIN_VALUE;
+    // Returned by nextTest when every open value of a move is being tested
+    private static final int NO_TEST = Integer.MAX_VALUE;
+
+    private final BoardEngine engine;
+    private final int stones;
+    private final int[] start;
+    private final int total;
+    private final Path solutionFile;
+    private final DiskTranspositionTable table;
+    private final int threads;
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final LongAdder nodes = new LongAdder();
+    private final ExecutorService pool;
+    private final ScheduledExecutorService checkpoints;
+    private final int[] lower;
+    private final int[] upper;
+    private final int[] guess;
+    private final int[][] variations;
+    // Per pit, the values being tested, offset by the total number of stones
+    private final BitSet[] testing;
+    private final boolean[] following;
+    private EndgameDatabase endgame;
+    private int running;
+    private boolean finished;
+    private long startNanos;
+
+    /**
+     * Opens a solver for an opening, reading the bounds of an earlier run if there are any.
+     * @param engine the board geometry and rule variant
+     * @param stones the stones in every pit at the start
+     * @param dir the directory of the table and solution files, created if missing
+     * @param tableBits the log2 of the number of table entries, used when the table is created
+     * @param threads the number of search threads
+     * @throws IOException if the table cannot be opened or the solution file cannot be read
+     */
+    public OpeningSolver(BoardEngine engine, int stones, Path dir, int tableBits, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.engine = engine;
+        this.stones = stones;
+        this.start = new int[engine.getPitCount()];
+        engine.setStones(start, stones);
+        this.total = 2 * engine.getPitsPerSide() * stones;
+        this.threads = threads;
+
+        int pitCount = engine.getPitCount();
+        lower = new int[pitCount];
+        upper = new int[pitCount];
+        guess = new int[pitCount];
+        variations = new int[pitCount][];
+        testing = new BitSet[pitCount];
+        following = new boolean[pitCount];
+        for (int pit = 0; pit < pitCount; pit++) {
+            lower[pit] = -total;
+            upper[pit] = total;
+            testing[pit] = new BitSet();
+        }
+
+        Files.createDirectories(dir);
+        solutionFile = dir.resolve("solution-" + engine.getRules().getName() + "-"
+                + engine.getPitsPerSide() + "x" + stones + ".txt");
+        if (Files.exists(solutionFile)) readSolution();
+        table = DiskTranspositionTable.open(dir.resolve("table-" + engine.getRules().getName() + "-"
+                + engine.getPitsPerSide() + ".bin"), tableBits, engine);
+
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mancala-solver");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpoints = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mancala-solver-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Sets an endgame database used by every search thread on the standard game.
+     * @param endgame a database, or null to search every position
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        this.endgame = endgame;
+    }
+
+    /**
+     * Solves every first move that is not solved yet and waits until all are solved or the solver is closed.
+     * @return true if every first move is solved
+     */
+    public boolean solve() {
+        startNanos = System.nanoTime();
+        checkpoints.scheduleAtFixedRate(this::checkpoint, CHECKPOINT_MILLIS, CHECKPOINT_MILLIS, TimeUnit.MILLISECONDS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(this::work));
+        }
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+        } catch (ExecutionException e) {
+            stop();
+            throw new IllegalStateException("solver failed", e.getCause());
+        }
+        checkpoint();
+        return isSolved();
+    }
+
+    /**
+     * Runs jobs on one search thread until there are none left or the solver is stopped.
+     */
+    private void work() {
+        Solver solver = new Solver(engine, table, stopSignal, nodes);
+        solver.setEndgameDatabase(endgame);
+        int[] job;
+        try {
+            while ((job = nextJob()) != null) {
+                int pit = job[0];
+                if (job[1] == VARIATION) {
+                    int value = getLower(pit);
+                    int[] line = solver.principalVariation(start, pit, BoardEngine.SIDE_A, value);
+                    if (line == null) return;
+                    finishVariation(pit, line);
+                }
+                else {
+                    int beta = job[1];
+                    int score = solver.moveValue(start, pit, BoardEngine.SIDE_A, beta - 1, beta);
+                    if (solver.isStopped()) return;
+                    finishTest(pit, beta, score);
+                }
+            }
+        } catch (RuntimeException e) {
+            stop(); // Threads waiting for this job's result would wait forever
+            throw e;
+        }
+    }
+
+    /**
+     * Stops every search thread and wakes the threads waiting for a job.
+     */
+    private synchronized void stop() {
+        stopSignal.set(true);
+        notifyAll();
+    }
+
+    /**
+     * Waits for the next job: following the variation of a solved move, or a value to test for
+     * the open move with the fewest tests running. A thread waits while every open value is being
+     * tested, since the results of those tests open new values.
+     * @return the pit and the value to test or {@link #VARIATION}, or null if there is nothing left to do
+     */
+    private synchronized int[] nextJob() {
+        while (!stopSignal.get()) {
+            int[] job = pickJob();
+            if (job != null) {
+                running++;
+                return job;
+            }
+            if (running == 0) return null;
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks a job that no thread is running, or returns null.
+     */
+    private int[] pickJob() {
+        int bestPit = -1;
+        int bestBeta = 0;
+        for (int pit = 0; pit < start.length; pit++) {
+            if (!engine.isLegal(start, pit, BoardEngine.SIDE_A)) continue;
+            if (lower[pit] == upper[pit]) {
+                if (variations[pit] == null && !following[pit]) {
+                    following[pit] = true;
+                    return new int[]{pit, VARIATION};
+                }
+                continue;
+            }
+            int beta = nextTest(pit);
+            if (beta != NO_TEST && (bestPit < 0 || testing[pit].cardinality() < testing[bestPit].cardinality())) {
+                bestPit = pit;
+                bestBeta = beta;
+            }
+        }
+        if (bestPit < 0) return null;
+        testing[bestPit].set(bestBeta + total);
+        return new int[]{bestPit, bestBeta};
+    }
+
+    /**
+     * Returns the value to test next for an open move: the MTD(f) step from the last result, or
+     * the untested value nearest to it if another thread is already testing that one.
+     * A test of beta proves either a value below beta or a value of at least beta.
+     * @return a value in the move's open bounds, or {@link #NO_TEST} if all are being tested
+     */
+    private int nextTest(int pit) {
+        int lo = lower[pit];
+        int hi = upper[pit];
+        int g = Math.max(lo, Math.min(hi, guess[pit]));
+        int beta = g == lo ? lo + 1 : g;
+        for (int d = 0; d <= hi - lo; d++) {
+            if (beta + d <= hi && !testing[pit].get(beta + d + total)) return beta + d;
+            if (beta - d > lo && !testing[pit].get(beta - d + total)) return beta - d;
+        }
+        return NO_TEST;
+    }
+
+    /**
+     * Narrows the bounds of a move with the result of a test and saves the solution.
+     */
+    private synchronized void finishTest(int pit, int beta, int score) {
+        testing[pit].clear(beta + total);
+        running--;
+        notifyAll();
+        if (score < beta) {
+            upper[pit] = Math.max(lower[pit], Math.min(upper[pit], score));
+        }
+        else {
+            lower[pit] = Math.min(upper[pit], Math.max(lower[pit], score));
+        }
+        guess[pit] = score;
+        System.out.printf("pit %2d: %s after testing %+d  (%s)%n", pit, bounds(pit), beta, progress());
+        writeSolution();
+    }
+
+    /**
+     * Records the principal variation of a solved move and saves the solution.
+     */
+    private synchronized void finishVariation(int pit, int[] line) {
+        variations[pit] = line;
+        following[pit] = false;
+        running--;
+        notifyAll();
+        System.out.println("pit " + pit + ": " + bounds(pit) + ", line " + format(line));
+        writeSolution();
+    }
+
+    /**
+     * Checks if every first move is solved with its principal variation.
+     * @return true if the opening is solved
+     */
+    public synchronized boolean isSolved() {
+        for (int pit = 0; pit < start.length; pit++) {
+            if (engine.isLegal(start, pit, BoardEngine.SIDE_A)
+                    && (lower[pit] != upper[pit] || variations[pit] == null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the proven lower bound of a first move's value.
+     * @param pit a first move
+     * @return the least final Mancala difference the first player can force after it
+     */
+    public synchronized int getLower(int pit) {
+        return lower[pit];
+    }
+
+    /**
+     * Returns the proven upper bound of a first move's value.
+     * @param pit a first move
+     * @return the greatest final Mancala difference the first player can force after it
+     */
+    public synchronized int getUpper(int pit) {
+        return upper[pit];
+    }
+
+    /**
+     * Returns the principal variation of a solved first move.
+     * @param pit a first move
+     * @return the pits played until the end of the game, or null if not found yet
+     */
+    public synchronized int[] getPrincipalVariation(int pit) {
+        return variations[pit] == null ? null : variations[pit].clone();
+    }
+
+    /**
+     * Returns the value of the opening, the best value of the first moves.
+     * @return the final Mancala difference the first player can force, valid once solved
+     */
+    public synchronized int getValue() {
+        int best = -total;
+        for (int pit = 0; pit < start.length; pit++) {
+            if (engine.isLegal(start, pit, BoardEngine.SIDE_A)) best = Math.max(best, lower[pit]);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the file the solution is written to.
+     * @return a path
+     */
+    public Path getSolutionFile() {
+        return solutionFile;
+    }
+
+    /**
+     * Flushes the table and saves the solution, so a later run resumes from here.
+     */
+    public void checkpoint() {
+        table.flush();
+        writeSolution();
+        System.out.println("checkpoint: " + progress());
+    }
+
+    /**
+     * Replaces the solution file with the current bounds and variations, unless the solver has
+     * been closed and wrote its last solution, since the process may exit in the middle of a write.
+     */
+    private synchronized void writeSolution() {
+        if (finished) return;
+        try {
+            Path temp = Files.createTempFile(solutionFile.toAbsolutePath().getParent(), "solution", ".tmp");
+            try {
+                try (BufferedWriter out = Files.newBufferedWriter(temp)) {
+                    out.write("# " + engine.getRules().getName() + " rules, " + engine.getPitsPerSide()
+                            + " pits per side, " + stones + " stones per pit\n");
+                    out.write("# pit lower upper [principal variation], values for the first player\n");
+                    for (int pit = 0; pit < start.length; pit++) {
+                        if (!engine.isLegal(start, pit, BoardEngine.SIDE_A)) continue;
+                        out.write(pit + " " + lower[pit] + " " + upper[pit]);
+                        if (variations[pit] != null) out.write(" " + format(variations[pit]));
+                        out.write("\n");
+                    }
+                }
+                Files.move(temp, solutionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("cannot write " + solutionFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the bounds and variations of an earlier run.
+     */
+    private void readSolution() throws IOException {
+        for (String line : Files.readAllLines(solutionFile)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] fields = line.trim().split("\\s+");
+            try {
+                int pit = Integer.parseInt(fields[0]);
+                if (!engine.isLegal(start, pit, BoardEngine.SIDE_A)) {
+                    throw new IOException("not a first move: " + line);
+                }
+                lower[pit] = Integer.parseInt(fields[1]);
+                upper[pit] = Integer.parseInt(fields[2]);
+                if (fields.length > 3) {
+                    variations[pit] = new int[fields.length - 3];
+                    for (int i = 3; i < fields.length; i++) {
+                        variations[pit][i - 3] = Integer.parseInt(fields[i]);
+                    }
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("corrupt solution file " + solutionFile + ": " + line);
+            }
+        }
+    }
+
+    private String bounds(int pit) {
+        return lower[pit] == upper[pit] ? "value " + String.format("%+d", lower[pit])
+                : "between " + String.format("%+d", lower[pit]) + " and " + String.format("%+d", upper[pit]);
+    }
+
+    private String progress() {
+        long n = nodes.sum();
+        long millis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        return String.format("%,d nodes, %,d nodes/s, %d s", n, n * 1000 / millis, millis / 1000);
+    }
+
+    private static String format(int[] line) {
+        StringBuilder sb = new StringBuilder();
+        for (int pit : line) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(pit);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops the search threads, saves a last checkpoint and closes the table.
+     * It is safe to call more than once and from a shutdown hook.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        stop();
+        checkpoints.shutdownNow();
+        pool.shutdown();
+        try {
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            writeSolution();
+            finished = true;
+            try {
+                table.close();
+            } catch (IOException e) {
+                System.err.println("cannot close the table: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Solves an opening and prints the value and principal variation of every first move.
+     * Interrupting the run saves a checkpoint; running it again with the same directory resumes.
+     * @param args optional stones per pit, pits per side, rule variant, working directory,
+     *             log2 of the table entries, thread count and endgame database file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int stones = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int pitsPerSide = args.length > 1 ? Integer.parseInt(args[1]) : BoardEngine.STANDARD.getPitsPerSide();
+        String variant = args.length > 2 ? args[2] : KalahRules.NAME;
+        Path dir = Path.of(args.length > 3 ? args[3] : "solver");
+        int tableBits = args.length > 4 ? Integer.parseInt(args[4]) : 26;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+        BoardEngine engine = new BoardEngine(pitsPerSide, RuleVariant.of(variant));
+
+        OpeningSolver solver = new OpeningSolver(engine, stones, dir, tableBits, threads);
+        if (args.length > 6) solver.setEndgameDatabase(EndgameDatabase.open(Path.of(args[6])));
+        Runtime.getRuntime().addShutdownHook(new Thread(solver::close));
+        System.out.println("solving " + variant + " rules, " + pitsPerSide + " pits per side, " + stones
+                + " stones per pit, " + threads + " threads, " + solver.table.capacity() + " table entries");
+        boolean solved = solver.solve();
+        solver.close();
+
+        System.out.println(solved ? "solved, value " + String.format("%+d", solver.getValue()) : "stopped, resume later");
+        int[] pits = solver.start;
+        for (int pit = 0; pit < pits.length; pit++) {
+            if (!engine.isLegal(pits, pit, BoardEngine.SIDE_A)) continue;
+            int[] line = solver.getPrincipalVariation(pit);
+            System.out.println("pit " + pit + ": " + solver.bounds(pit)
+                    + (line == null ? "" : ", line " + Arrays.toString(line)));
+        }
+        System.out.println("written to " + solver.getSolutionFile());
+    }
+}
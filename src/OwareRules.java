@@ -0,0 +1,61 @@
+/**
+ * A concrete rule variant with Oware-style captures on the Kalah board.
+ * A last stone in the mover's Mancala earns a free move. A last stone that brings a pit of the
+ * opponent to two or three stones captures it, and so does every pit before it on the
+ * opponent's side that also holds two or three stones, stopping at the first one that does not.
+ * As in Oware, a capture that would take every stone the opponent has is not made. When one
+ * side is empty, the stones left on the other side go to that side's Mancala.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class OwareRules implements RuleVariant {
+    public static final String NAME = "oware";
+
+    /**
+     * Applies the free move, the capture of twos and threes and the end of game sweep.
+     * @param engine the engine that sowed the stones
+     * @param pits the stones in every pit, updated in place
+     * @param last the index of the pit that received the last stone
+     * @param side the side making the move
+     * @param journal receives the stones moved into the Mancalas, or null
+     * @return the result flags of the move
+     */
+    @Override
+    public int finish(BoardEngine engine, int[] pits, int last, int side, MoveJournal journal) {
+        int flags = 0;
+        if (last == engine.store(side)) {
+            flags = BoardEngine.FREE_MOVE;
+        }
+        else {
+            // The opponent's pits run up to its Mancala, so walking back stops at the mover's side
+            int first = last;
+            int taken = 0;
+            while (first >= 0 && engine.owner(first) != side && (pits[first] == 2 || pits[first] == 3)) {
+                taken += pits[first];
+                first--;
+            }
+            if (taken > 0 && taken < engine.sideStones(pits, side ^ 1)) {
+                for (int pit = last; pit > first; pit--) {
+                    engine.collect(pits, pit, side, journal);
+                }
+                flags = BoardEngine.CAPTURE;
+            }
+        }
+
+        if (engine.isOver(pits)) {
+            engine.sweep(pits, journal);
+            flags |= BoardEngine.GAME_OVER;
+        }
+        return flags;
+    }
+
+    /**
+     * Returns the name of the variant.
+     * @return {@value #NAME}
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A root-parallel Monte Carlo tree search.
+ * Every thread grows its own {@link MctsSearch} tree from the same position with its own random
+ * playouts, so the threads share nothing while searching. The visits and results of the root
+ * moves are then summed over all trees and the pit played most often is chosen.
+ * Usage: {@code java ParallelMctsSearch [millis] [threads] [nodes per thread]} plays a game
+ * against itself and prints the playout rate of every move.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class ParallelMctsSearch implements AutoCloseable {
+    private final MctsSearch[] searches;
+    private final AtomicBoolean stopSignal;
+    private final ExecutorService pool;
+    private final long[] visits;
+    private final double[] results;
+
+    /**
+     * Constructs a parallel search on the standard board.
+     * @param threads the number of search threads, each with its own tree
+     * @param capacity the most nodes in each tree
+     * @param exploration the UCT exploration constant
+     */
+    public ParallelMctsSearch(int threads, int capacity, double exploration) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.stopSignal = new AtomicBoolean();
+        this.searches = new MctsSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new MctsSearch(BoardEngine.STANDARD, capacity, exploration, i + 1L, stopSignal);
+        }
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mancala-mcts");
+            t.setDaemon(true);
+            return t;
+        });
+        this.visits = new long[BoardEngine.MAX_PITS];
+        this.results = new double[BoardEngine.MAX_PITS];
+    }
+
+    /**
+     * Searches a position on all threads.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param millis the time budget in milliseconds
+     * @return the pit with the most visits over all trees, its expected result in thousandths,
+     * the deepest tree and the playouts of all threads
+     */
+    public SearchResult search(int[] pits, int side, long millis) {
+        long start = System.nanoTime();
+        final int[] position = pits.clone();
+        stopSignal.set(false);
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (MctsSearch s : searches) {
+            futures.add(pool.submit(() -> s.search(position, side, millis)));
+        }
+
+        long playouts = 0;
+        int depth = 0;
+        try {
+            for (Future<SearchResult> f : futures) {
+                SearchResult r = f.get();
+                playouts += r.getNodes();
+                depth = Math.max(depth, r.getDepth());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopSignal.set(true);
+            throw new IllegalStateException("search interrupted", e);
+        } catch (ExecutionException e) {
+            stopSignal.set(true);
+            throw new IllegalStateException("search failed", e.getCause());
+        }
+
+        long[] treeVisits = new long[BoardEngine.MAX_PITS];
+        double[] treeResults = new double[BoardEngine.MAX_PITS];
+        Arrays.fill(visits, 0);
+        Arrays.fill(results, 0);
+        for (MctsSearch s : searches) {
+            s.getRootVisits(treeVisits);
+            s.getRootResults(treeResults);
+            for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+                visits[pit] += treeVisits[pit];
+                results[pit] += treeResults[pit];
+            }
+        }
+        int best = -1;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            if (visits[pit] > 0 && (best < 0 || visits[pit] > visits[best])) best = pit;
+        }
+        int score = best < 0 ? 0 : (int) (1000 * results[best] / visits[best]);
+        return new SearchResult(best, score, depth, playouts, System.nanoTime() - start);
+    }
+
+    /**
+     * Keeps the subtree of a played pit in every tree, for tree reuse in the next search.
+     * @param played the pit that was played from the last searched position
+     */
+    public void advance(int played) {
+        for (MctsSearch s : searches) {
+            s.advance(played);
+        }
+    }
+
+    /**
+     * Returns the number of nodes in all trees.
+     * @return a node count
+     */
+    public long getNodeCount() {
+        long nodes = 0;
+        for (MctsSearch s : searches) {
+            nodes += s.getNodeCount();
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the number of search threads.
+     * @return a thread count
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /** Stops the search threads. */
+    @Override
+    public void close() {
+        stopSignal.set(true);
+        pool.shutdownNow();
+    }
+
+    /**
+     * Plays a game of the search against itself from the 4-stone opening, reusing the trees
+     * between moves, and prints the playout rate, the reused playouts and the tree memory.
+     * @param args optional time per move in milliseconds, number of threads and nodes per tree
+     */
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1 << 20;
+
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        BoardEngine.STANDARD.setStones(pits, 4);
+        int side = BoardEngine.SIDE_A;
+        System.out.printf("%d threads, %,d nodes per tree, %d bytes per node, %,d KB of trees%n", threads,
+                capacity, MctsSearch.BYTES_PER_NODE, (long) threads * capacity * MctsSearch.BYTES_PER_NODE / 1024);
+        try (ParallelMctsSearch search = new ParallelMctsSearch(threads, capacity, MctsSearch.DEFAULT_EXPLORATION)) {
+            while (!BoardEngine.STANDARD.isOver(pits)) {
+                long reused = 0;
+                for (MctsSearch s : search.searches) {
+                    reused += s.getRootVisits();
+                }
+                SearchResult r = search.search(pits, side, millis);
+                System.out.printf("%s plays %2d  result %4d/1000  depth %3d  %,10d playouts/s  %,9d reused  %,9d nodes%n",
+                        side == BoardEngine.SIDE_A ? "A" : "B", r.getBestPit(), r.getScore(), r.getDepth(),
+                        r.getNodesPerSecond(), reused, search.getNodeCount());
+                int flags = BoardEngine.STANDARD.move(pits, r.getBestPit(), side);
+                search.advance(r.getBestPit());
+                side = BoardEngine.nextSide(side, flags);
+            }
+        }
+        System.out.println("Final score: A " + pits[BoardEngine.PLAYER_A_PIT] + " - B " + pits[BoardEngine.PLAYER_B_PIT]);
+    }
+}
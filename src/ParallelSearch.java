@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A parallel game-tree search using the Lazy SMP scheme.
+ * Every thread runs its own {@link AlphaBetaSearch} over the same position and all of them
+ * share one transposition table, so results found by one thread cut the trees of the others.
+ * Helper threads start at staggered depths and, near the root, try the moves after the best one
+ * in rotated orders, so they spread over different subtrees; the result of the main thread is
+ * returned and the helpers are stopped as soon as it finishes.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class ParallelSearch implements AutoCloseable {
+    private final int threads;
+    private final TranspositionTable table;
+    private final AtomicBoolean stopSignal;
+    private final AlphaBetaSearch[] searches;
+    private final ExecutorService pool;
+    private long mainNodes;
+
+    /**
+     * Constructs a parallel search.
+     * @param threads the number of search threads
+     * @param table the transposition table shared by all threads
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        this.table = table;
+        this.stopSignal = new AtomicBoolean();
+        this.searches = new AlphaBetaSearch[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new AlphaBetaSearch(table, stopSignal);
+            searches[i].setStartDepth(1 + (i & 1)); // Odd helpers skip ahead one ply
+            searches[i].setMoveRotation(i); // Each helper tries the alternatives in another order
+        }
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mancala-search");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Searches a position on all threads.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param millis the time budget in milliseconds
+     * @param maxDepth the deepest iteration to run
+     * @return the result of the main thread, with the nodes of all threads
+     */
+    public SearchResult search(int[] pits, int side, long millis, int maxDepth) {
+        long start = System.nanoTime();
+        final int[] position = pits.clone();
+        stopSignal.set(false);
+        table.newSearch();
+
+        List<Future<SearchResult>> futures = new ArrayList<>();
+        for (AlphaBetaSearch s : searches) {
+            futures.add(pool.submit(() -> s.deepen(position, side, millis, maxDepth)));
+        }
+
+        try {
+            SearchResult main = futures.get(0).get();
+            stopSignal.set(true);
+            mainNodes = main.getNodes();
+            long nodes = main.getNodes();
+            for (int i = 1; i < futures.size(); i++) {
+                nodes += futures.get(i).get().getNodes();
+            }
+            return new SearchResult(main.getBestPit(), main.getScore(), main.getDepth(),
+                    nodes, System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopSignal.set(true);
+            throw new IllegalStateException("search interrupted", e);
+        } catch (ExecutionException e) {
+            stopSignal.set(true);
+            throw new IllegalStateException("search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Sets an endgame database for every search thread.
+     * @param endgame a database, or null to search every position
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        for (AlphaBetaSearch s : searches) {
+            s.setEndgameDatabase(endgame);
+        }
+    }
+
+    /**
+     * Returns the number of search threads.
+     * @return a thread count
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the nodes searched by the main thread in the last search. The fewer, the more the
+     * helpers' entries in the shared table cut its tree.
+     * @return a node count
+     */
+    public long getMainNodes() {
+        return mainNodes;
+    }
+
+    /**
+     * Returns the shared transposition table.
+     * @return a transposition table
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /** Stops the search threads. */
+    @Override
+    public void close() {
+        stopSignal.set(true);
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * A perft (performance test) for the game rules.
+ * It counts the positions reached after a number of moves from an opening, counting a position
+ * where the game ended early as one leaf. A free move is a move like any other, so the same side
+ * simply moves again at the next depth. Counts and a checksum of the leaf positions are computed
+ * through {@link BoardEngine}, through {@link MancalaModel}, and through a plain reference
+ * implementation that sows one stone at a time, so a faster engine cannot silently change the rules.
+ * Each rule variant has its own counts; the reference implementation follows the variant's rules.
+ * Usage: {@code java Perft [stones] [maxDepth] [pitsPerSide] [variant|all]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class Perft {
+    private final BoardEngine engine;
+    private final String variant;
+    private final int pitCount;
+    private final int[][] stack;
+    private final MancalaModel[] models;
+    private long checksum;
+
+    /**
+     * Constructs a perft of the standard board for a maximum depth.
+     * @param maxDepth the deepest count to compute
+     */
+    public Perft(int maxDepth) {
+        this(BoardEngine.STANDARD, maxDepth);
+    }
+
+    /**
+     * Constructs a perft for a board geometry, a rule variant and a maximum depth.
+     * @param engine the engine of the board geometry and rule variant
+     * @param maxDepth the deepest count to compute
+     */
+    public Perft(BoardEngine engine, int maxDepth) {
+        this.engine = engine;
+        this.variant = engine.getRules().getName();
+        this.pitCount = engine.getPitCount();
+        stack = new int[maxDepth + 1][pitCount];
+        models = new MancalaModel[maxDepth + 1];
+        for (int i = 0; i <= maxDepth; i++) {
+            models[i] = new MancalaModel(engine);
+        }
+    }
+
+    /**
+     * Counts leaf positions using the board engine.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param depth the number of moves
+     * @return the number of leaf positions
+     */
+    public long countEngine(int[] pits, int side, int depth) {
+        checksum = 0;
+        System.arraycopy(pits, 0, stack[0], 0, pitCount);
+        return engine(0, side, depth);
+    }
+
+    /**
+     * Counts leaf positions using the model's move, playable and end-of-game rules.
+     * @param pits the stones in every pit, left unchanged
+     * @param player the player to move
+     * @param depth the number of moves
+     * @return the number of leaf positions
+     */
+    public long countModel(int[] pits, Player player, int depth) {
+        checksum = 0;
+        MancalaModel root = models[0];
+        System.arraycopy(pits, 0, root.getPits(), 0, pitCount);
+        root.setPlayer(player);
+        root.setState(engine.isOver(pits) ? GameState.COMPLETE : GameState.PLAYING);
+        return model(0, depth);
+    }
+
+    /**
+     * Counts leaf positions using the stone-by-stone reference rules of the engine's variant.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param depth the number of moves
+     * @return the number of leaf positions
+     */
+    public long countReference(int[] pits, int side, int depth) {
+        checksum = 0;
+        System.arraycopy(pits, 0, stack[0], 0, pitCount);
+        return reference(0, side, depth);
+    }
+
+    /**
+     * Returns the checksum of the leaf positions of the last count.
+     * The checksum is the sum of the leaves' Zobrist hashes, so it does not depend on move order.
+     * @return a checksum
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    private long engine(int ply, int side, int depth) {
+        int[] pos = stack[ply];
+        if (depth == 0) {
+            checksum += Zobrist.hash(pos, side);
+            return 1;
+        }
+        int[] child = stack[ply + 1];
+        long count = 0;
+        for (int pit = 0; pit < pitCount; pit++) {
+            if (!engine.isLegal(pos, pit, side)) continue;
+            System.arraycopy(pos, 0, child, 0, pitCount);
+            int flags = engine.move(child, pit, side);
+            int next = BoardEngine.nextSide(side, flags);
+            if ((flags & BoardEngine.GAME_OVER) != 0) {
+                checksum += Zobrist.hash(child, next);
+                count++;
+            }
+            else {
+                count += engine(ply + 1, next, depth - 1);
+            }
+        }
+        return count;
+    }
+
+    private long model(int ply, int depth) {
+        MancalaModel pos = models[ply];
+        if (depth == 0) {
+            checksum += Zobrist.hash(pos.getPits(), side(pos.getPlayer()));
+            return 1;
+        }
+        MancalaModel child = models[ply + 1];
+        long count = 0;
+        for (int pit = 0; pit < pos.MAX_PITS; pit++) {
+            if (!pos.playable(pit)) continue;
+            System.arraycopy(pos.getPits(), 0, child.getPits(), 0, pos.MAX_PITS);
+            child.setPlayer(pos.getPlayer());
+            child.setState(GameState.PLAYING);
+            child.setLastStone(pos.isLastStone());
+            child.move(pit);
+            if (child.getState() == GameState.COMPLETE) {
+                checksum += Zobrist.hash(child.getPits(), side(child.getPlayer()));
+                count++;
+            }
+            else {
+                count += model(ply + 1, depth - 1);
+            }
+        }
+        return count;
+    }
+
+    private long reference(int ply, int side, int depth) {
+        int[] pos = stack[ply];
+        if (depth == 0) {
+            checksum += Zobrist.hash(pos, side);
+            return 1;
+        }
+        int[] child = stack[ply + 1];
+        int storeA = pitCount / 2 - 1;
+        long count = 0;
+        for (int pit = 0; pit < pitCount; pit++) {
+            if (pit == storeA || pit == pitCount - 1
+                    || ownerOf(pit) != side || pos[pit] == 0) continue;
+            System.arraycopy(pos, 0, child, 0, pitCount);
+            int next = referenceMove(child, pit, side);
+            if (next < 0) {
+                next = -next - 1;
+                checksum += Zobrist.hash(child, next);
+                count++;
+            }
+            else {
+                count += reference(ply + 1, next, depth - 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Plays a move one stone at a time, as the rules of the variant are written.
+     * @return the next side to move, or -(side + 1) if the game ended
+     */
+    private int referenceMove(int[] pits, int pit, int side) {
+        int storeA = pitCount / 2 - 1;
+        int storeB = pitCount - 1;
+        int mancala = side == BoardEngine.SIDE_A ? storeA : storeB;
+        int stones = pits[pit];
+        pits[pit] = 0;
+        int current = pit;
+        while (stones > 0) {
+            current = (current + 1) % pitCount;
+            if ((current == storeA || current == storeB) && current != mancala) {
+                continue; // Skip the opponent's Mancala
+            }
+            pits[current]++;
+            stones--;
+        }
+
+        int next = side ^ 1;
+        int opposite = storeB - 1 - current;
+        if (current == mancala) {
+            next = side; // Free move
+        }
+        else if (variant.equals(OwareRules.NAME)) {
+            // Take twos and threes backwards from the last stone, unless that takes every stone
+            int taken = 0;
+            int left = 0;
+            for (int i = 0; i < pitCount; i++) {
+                if (i != storeA && i != storeB && ownerOf(i) != side) left += pits[i];
+            }
+            int i = current;
+            while (i >= 0 && ownerOf(i) != side && i != storeA && i != storeB
+                    && (pits[i] == 2 || pits[i] == 3)) {
+                taken += pits[i];
+                i--;
+            }
+            if (taken > 0 && taken < left) {
+                for (int j = current; j > i; j--) {
+                    pits[mancala] += pits[j];
+                    pits[j] = 0;
+                }
+            }
+        }
+        else if (!variant.equals(NoCaptureRules.NAME)
+                && ownerOf(current) == side && pits[current] == 1 && pits[opposite] > 0) {
+            pits[mancala] += pits[current] + pits[opposite];
+            pits[current] = 0;
+            pits[opposite] = 0;
+        }
+
+        int sideA = 0;
+        int sideB = 0;
+        for (int i = 0; i < storeA; i++) {
+            sideA += pits[i];
+            sideB += pits[i + storeA + 1];
+        }
+        if (sideA == 0 || sideB == 0) {
+            if (variant.equals(NoSweepRules.NAME)) return -next - 1;
+            for (int i = 0; i < storeA; i++) {
+                pits[storeA] += pits[i];
+                pits[storeB] += pits[i + storeA + 1];
+                pits[i] = 0;
+                pits[i + storeA + 1] = 0;
+            }
+            return -next - 1;
+        }
+        return next;
+    }
+
+    private int ownerOf(int pit) {
+        return pit <= pitCount / 2 - 1 ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+    }
+
+    private static int side(Player player) {
+        return player == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+    }
+
+    /**
+     * Prints perft counts for every depth up to a maximum, with the speed of both paths,
+     * and exits with status 1 if the paths disagree.
+     * @param args optional number of stones per pit, maximum depth, pits per side and rule variant,
+     *             or {@code all} for every variant
+     */
+    public static void main(String[] args) {
+        int stones = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+        int pitsPerSide = args.length > 2 ? Integer.parseInt(args[2]) : BoardEngine.STANDARD.getPitsPerSide();
+        String name = args.length > 3 ? args[3] : KalahRules.NAME;
+        String[] variants = name.equals("all")
+                ? new String[]{KalahRules.NAME, NoCaptureRules.NAME, OwareRules.NAME, NoSweepRules.NAME}
+                : new String[]{name};
+        boolean ok = true;
+        for (String variant : variants) {
+            ok &= run(new BoardEngine(pitsPerSide, RuleVariant.of(variant)), stones, maxDepth);
+        }
+        if (!ok) System.exit(1);
+    }
+
+    /**
+     * Prints perft counts of a board geometry and rule variant for every depth up to a maximum.
+     * @return true if all paths agreed
+     */
+    private static boolean run(BoardEngine engine, int stones, int maxDepth) {
+        MancalaModel start = new MancalaModel(engine);
+        start.setStones(stones);
+        Perft perft = new Perft(engine, maxDepth);
+        boolean ok = true;
+
+        System.out.println("perft, " + stones + " stones, " + engine.getPitsPerSide() + " pits per side, "
+                + engine.getRules().getName() + " rules");
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            long t0 = System.nanoTime();
+            long engineCount = perft.countEngine(start.getPits(), BoardEngine.SIDE_A, depth);
+            long engineSum = perft.getChecksum();
+            long t1 = System.nanoTime();
+            long modelCount = perft.countModel(start.getPits(), Player.A, depth);
+            long modelSum = perft.getChecksum();
+            long t2 = System.nanoTime();
+            long referenceCount = perft.countReference(start.getPits(), BoardEngine.SIDE_A, depth);
+            long referenceSum = perft.getChecksum();
+            long t3 = System.nanoTime();
+
+            boolean match = engineCount == modelCount && engineSum == modelSum
+                    && engineCount == referenceCount && engineSum == referenceSum;
+            ok &= match;
+            System.out.printf("depth %2d  %,15d leaves  engine %,12d/s  model %,12d/s  reference %,12d/s  %s%n",
+                    depth, engineCount, rate(engineCount, t1 - t0), rate(modelCount, t2 - t1),
+                    rate(referenceCount, t3 - t2),
+                    match ? "OK" : "MISMATCH (model " + modelCount + ", reference " + referenceCount + ")");
+        }
+        return ok;
+    }
+
+    private static long rate(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.SplittableRandom;
+
+/**
+ * The strategy interface for choosing moves in headless play.
+ * A policy instance may keep state between calls and is used by one thread at a time.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public interface Policy {
+
+    /**
+     * Chooses a pit to play.
+     * @param pits the stones in every pit, which must not be changed
+     * @param side the side to move
+     * @param random a random source owned by the calling thread
+     * @return a legal pit index
+     */
+    int choose(int[] pits, int side, SplittableRandom random);
+
+    /**
+     * Tells the policy about a move played by either side, including its own moves, so it can
+     * follow the game between its calls. Does nothing by default.
+     * @param pits the stones in every pit before the move, which must not be changed
+     * @param pit the pit played
+     * @param side the side that played it
+     */
+    default void played(int[] pits, int pit, int side) {
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * A batch of positions of the standard board stored as a struct of arrays.
+ * Every pit has its own column holding that pit's stones for every position in the batch, so
+ * analysis code can sweep one pit across many positions in a tight loop over a primitive array.
+ * Positions are stored from the point of view of the side to move: the mover's pits come first,
+ * then its Mancala, the opponent's pits and the opponent's Mancala, as side A's would on the
+ * board. The side itself is kept so positions can be read back as they were added.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class PositionBatch {
+    private final int capacity;
+    private final int[][] columns;
+    private final byte[] sides;
+    private int size;
+
+    /**
+     * Constructs an empty batch.
+     * @param capacity the most positions the batch can hold
+     */
+    public PositionBatch(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.capacity = capacity;
+        this.columns = new int[BoardEngine.MAX_PITS][capacity];
+        this.sides = new byte[capacity];
+    }
+
+    /**
+     * Adds a position at the end of the batch.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @return the index of the position in the batch
+     */
+    public int add(int[] pits, int side) {
+        if (size == capacity) {
+            throw new IllegalStateException("batch is full");
+        }
+        set(size, pits, side);
+        return size++;
+    }
+
+    /**
+     * Replaces a position of the batch.
+     * @param index the index of the position, less than the capacity
+     * @param pits the stones in every pit
+     * @param side the side to move
+     */
+    public void set(int index, int[] pits, int side) {
+        int offset = side == BoardEngine.SIDE_A ? 0 : BoardEngine.PLAYER_A_PIT + 1;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            columns[pit][index] = pits[(pit + offset) % BoardEngine.MAX_PITS];
+        }
+        sides[index] = (byte) side;
+        size = Math.max(size, index + 1);
+    }
+
+    /**
+     * Copies a position of the batch back into board order.
+     * @param index the index of the position
+     * @param pits receives the stones in every pit
+     * @return the side to move
+     */
+    public int get(int index, int[] pits) {
+        int offset = sides[index] == BoardEngine.SIDE_A ? 0 : BoardEngine.PLAYER_A_PIT + 1;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            pits[(pit + offset) % BoardEngine.MAX_PITS] = columns[pit][index];
+        }
+        return sides[index];
+    }
+
+    /**
+     * Returns the column of a pit, counted from the side to move.
+     * @param pit a pit index from the mover's point of view, {@link BoardEngine#PLAYER_A_PIT} being its Mancala
+     * @return the stones in that pit for every position; entries past {@link #size()} are unused
+     */
+    public int[] column(int pit) {
+        return columns[pit];
+    }
+
+    /**
+     * Returns the side to move of a position.
+     * @param index the index of the position
+     * @return a side
+     */
+    public int getSide(int index) {
+        return sides[index];
+    }
+
+    /**
+     * Returns the number of positions in the batch.
+     * @return a position count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the most positions the batch can hold.
+     * @return a position count
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** Removes every position from the batch. */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * The features and static evaluations of a {@link PositionBatch}, one primitive array per feature.
+ * Entry {@code i} of every array describes position {@code i} of the batch, from the point of
+ * view of its side to move.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class PositionFeatures {
+    private final int[] scoreDiff;
+    private final int[] mobility;
+    private final int[] freeMoves;
+    private final int[] captureThreats;
+    private final int[] evaluation;
+
+    /**
+     * Constructs the features of a batch with zeros.
+     * @param capacity the most positions described
+     */
+    public PositionFeatures(int capacity) {
+        scoreDiff = new int[capacity];
+        mobility = new int[capacity];
+        freeMoves = new int[capacity];
+        captureThreats = new int[capacity];
+        evaluation = new int[capacity];
+    }
+
+    /**
+     * Returns the Mancala difference, the mover's Mancala minus the opponent's.
+     * @return one difference per position
+     */
+    public int[] getScoreDiff() {
+        return scoreDiff;
+    }
+
+    /**
+     * Returns the number of legal moves.
+     * @return one move count per position
+     */
+    public int[] getMobility() {
+        return mobility;
+    }
+
+    /**
+     * Returns the number of moves ending in the mover's Mancala.
+     * @return one move count per position
+     */
+    public int[] getFreeMoves() {
+        return freeMoves;
+    }
+
+    /**
+     * Returns the number of moves capturing stones under the Kalah rules.
+     * @return one move count per position
+     */
+    public int[] getCaptureThreats() {
+        return captureThreats;
+    }
+
+    /**
+     * Returns the static evaluation, the weighted sum of the other features.
+     * @return one score per position
+     */
+    public int[] getEvaluation() {
+        return evaluation;
+    }
+
+    /**
+     * Returns the most positions described.
+     * @return a position count
+     */
+    public int getCapacity() {
+        return evaluation.length;
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.Arrays;
+
+/**
+ * An immutable copy of a game position: the stones in every pit, the player to move and the
+ * game state. A model publishes a new snapshot after every change, so other threads can read a
+ * consistent position without locking or cloning while the game goes on. The stones are kept
+ * in 16 bits per pit, which holds any board the model supports.
+ * Two snapshots are equal when their positions are, whatever their versions.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class PositionSnapshot {
+    private final short[] stones;
+    private final Player player;
+    private final GameState state;
+    private final boolean lastStone;
+    private final long version;
+
+    /**
+     * Constructs a snapshot of a position.
+     * @param pits the stones in every pit, copied
+     * @param player the player to move
+     * @param state the game state
+     * @param lastStone true if the player to move has a free move
+     * @param version the number of snapshots published before this one
+     */
+    public PositionSnapshot(int[] pits, Player player, GameState state, boolean lastStone, long version) {
+        this.stones = new short[pits.length];
+        for (int i = 0; i < pits.length; i++) {
+            stones[i] = (short) pits[i];
+        }
+        this.player = player;
+        this.state = state;
+        this.lastStone = lastStone;
+        this.version = version;
+    }
+
+    /**
+     * Returns the stones in a pit.
+     * @param pit a pit index
+     * @return a number of stones
+     */
+    public int getStones(int pit) {
+        return stones[pit];
+    }
+
+    /**
+     * Copies the stones in every pit into an array.
+     * @param pits receives the stones, with at least {@link #getPitCount()} entries
+     * @return the array passed in
+     */
+    public int[] copyPits(int[] pits) {
+        for (int i = 0; i < stones.length; i++) {
+            pits[i] = stones[i];
+        }
+        return pits;
+    }
+
+    /**
+     * Returns the stones in every pit in a new array.
+     * @return an array the caller may change
+     */
+    public int[] toArray() {
+        return copyPits(new int[stones.length]);
+    }
+
+    /**
+     * Returns the number of pits, including both Mancalas.
+     * @return a pit count
+     */
+    public int getPitCount() {
+        return stones.length;
+    }
+
+    /**
+     * Returns the player to move.
+     * @return a player
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the side to move as encoded by {@link BoardEngine}.
+     * @return {@link BoardEngine#SIDE_A} or {@link BoardEngine#SIDE_B}
+     */
+    public int getSide() {
+        return player == Player.A ? BoardEngine.SIDE_A : BoardEngine.SIDE_B;
+    }
+
+    /**
+     * Returns the game state.
+     * @return a game state
+     */
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Checks if the player to move has a free move.
+     * @return true after a last stone in the player's own Mancala
+     */
+    public boolean isLastStone() {
+        return lastStone;
+    }
+
+    /**
+     * Returns the number of snapshots the model published before this one.
+     * @return a version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PositionSnapshot)) return false;
+        PositionSnapshot other = (PositionSnapshot) o;
+        return player == other.player && state == other.state && lastStone == other.lastStone
+                && Arrays.equals(stones, other.stones);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(stones) + player.hashCode();
+    }
+
+    /**
+     * Returns the state, the player and the stones in every pit, separated by spaces.
+     * @return a description of the position
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(state).append(' ').append(player);
+        for (short s : stones) {
+            sb.append(' ').append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,30 @@
+import java.util.SplittableRandom;
+
+/**
+ * A concrete policy that plays a uniformly random legal pit.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class RandomPolicy implements Policy {
+
+    /**
+     * Chooses a random legal pit.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @param random a random source
+     * @return a legal pit index
+     */
+    @Override
+    public int choose(int[] pits, int side, SplittableRandom random) {
+        int chosen = -1;
+        int seen = 0;
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            // Reservoir sampling over the legal pits
+            if (BoardEngine.STANDARD.isLegal(pits, pit, side) && random.nextInt(++seen) == 0) {
+                chosen = pit;
+            }
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * The strategy interface for the rules applied after the stones of a move are sown.
+ * The engine sows the stones itself and then makes one call to its rule variant, which applies
+ * the last stone rule and ends the game. A variant is chosen when the engine is constructed and
+ * held in a final field, so every move makes a single call to a variant and the per-stone loops
+ * never call one.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public interface RuleVariant {
+
+    /**
+     * Applies the last stone rule and sweeps the board if the game is over.
+     * Stones moved into a Mancala must be moved with {@link BoardEngine#collect} so the move can be undone.
+     * @param engine the engine that sowed the stones
+     * @param pits the stones in every pit, updated in place
+     * @param last the index of the pit that received the last stone
+     * @param side the side making the move
+     * @param journal receives the stones moved into the Mancalas, or null
+     * @return a combination of {@link BoardEngine#FREE_MOVE}, {@link BoardEngine#CAPTURE} and
+     * {@link BoardEngine#GAME_OVER}
+     */
+    int finish(BoardEngine engine, int[] pits, int last, int side, MoveJournal journal);
+
+    /**
+     * Returns the name of the variant, as accepted by {@link #of(String)}.
+     * @return a name
+     */
+    String getName();
+
+    /**
+     * Returns a rule variant by name.
+     * @param name one of {@code kalah}, {@code no-capture}, {@code oware} and {@code no-sweep}
+     * @return a rule variant
+     */
+    static RuleVariant of(String name) {
+        switch (name) {
+            case KalahRules.NAME:
+                return new KalahRules();
+            case NoCaptureRules.NAME:
+                return new NoCaptureRules();
+            case OwareRules.NAME:
+                return new OwareRules();
+            case NoSweepRules.NAME:
+                return new NoSweepRules();
+            default:
+                throw new IllegalArgumentException("unknown rule variant: " + name);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * A benchmark for the parallel search.
+ * For the 3-stone and 4-stone openings, it measures the time to complete a fixed depth with
+ * an increasing number of threads and prints the speedup against one thread and the nodes
+ * searched by the main thread, which fall as the helpers fill the shared table.
+ * Usage: {@code java SearchBenchmark [depth] [maxThreads] [tableBits]}
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class SearchBenchmark {
+    private static final long NO_TIME_LIMIT = Long.MAX_VALUE / 2_000_000L;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 18;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int tableBits = args.length > 2 ? Integer.parseInt(args[2]) : 22;
+
+        for (int stones : new int[]{3, 4}) {
+            MancalaModel model = new MancalaModel();
+            model.setStones(stones);
+            System.out.println(stones + " stones, depth " + depth);
+
+            // Warm up the JIT so the single-thread baseline is not penalized
+            try (ParallelSearch warmup = new ParallelSearch(1, new TranspositionTable(tableBits))) {
+                warmup.search(model.getPits(), BoardEngine.SIDE_A, NO_TIME_LIMIT, depth);
+            }
+
+            long baseline = 0;
+            for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+                TranspositionTable table = new TranspositionTable(tableBits);
+                try (ParallelSearch search = new ParallelSearch(threads, table)) {
+                    SearchResult result = search.search(model.getPits(), BoardEngine.SIDE_A, NO_TIME_LIMIT, depth);
+                    if (threads == 1) baseline = result.getNanos();
+                    System.out.printf("  %2d threads: %8.1f ms  speedup %.2fx  main %,d nodes  %s%n", threads,
+                            result.getNanos() / 1e6, (double) baseline / result.getNanos(),
+                            search.getMainNodes(), result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the next thread count to measure: powers of two, then the maximum.
+     */
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) return maxThreads + 1;
+        return Math.min(threads * 2, maxThreads);
+    }
+}
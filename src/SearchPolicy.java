@@ -0,0 +1,34 @@
+import java.util.SplittableRandom;
+
+/**
+ * A concrete policy that plays the best pit of a fixed-depth alpha-beta search.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class SearchPolicy implements Policy {
+    private static final long NO_TIME_LIMIT = Long.MAX_VALUE / 2_000_000L;
+    private final AlphaBetaSearch search;
+    private final int depth;
+
+    /**
+     * Constructs a search policy.
+     * @param depth the search depth in plies
+     */
+    public SearchPolicy(int depth) {
+        this.search = new AlphaBetaSearch(new TranspositionTable(16));
+        this.depth = depth;
+    }
+
+    /**
+     * Chooses the best pit found by the search.
+     * @param pits the stones in every pit
+     * @param side the side to move
+     * @param random a random source, not used
+     * @return a legal pit index
+     */
+    @Override
+    public int choose(int[] pits, int side, SplittableRandom random) {
+        return search.search(pits, side, NO_TIME_LIMIT, depth).getBestPit();
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * The outcome of a game-tree search: the best pit found and the statistics of the search.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class SearchResult {
+    private final int bestPit;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+
+    /**
+     * Constructs a search result.
+     * @param bestPit the index of the best pit, or -1 if there is no legal move
+     * @param score the score of the best pit from the mover's point of view
+     * @param depth the deepest completed iteration
+     * @param nodes the number of visited nodes
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public SearchResult(int bestPit, int score, int depth, long nodes, long nanos) {
+        this.bestPit = bestPit;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the best pit to play.
+     * @return a pit index, or -1 if there is no legal move
+     */
+    public int getBestPit() {
+        return bestPit;
+    }
+
+    /**
+     * Returns the score of the best pit, as the Mancala difference for the mover.
+     * @return a score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the deepest completed iteration.
+     * @return a depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of visited nodes.
+     * @return a node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the elapsed search time.
+     * @return a time in nanoseconds
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Returns the search speed.
+     * @return the number of nodes visited per second
+     */
+    public long getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "pit " + bestPit + " score " + score + " depth " + depth
+                + " nodes " + nodes + " (" + getNodesPerSecond() + " nodes/s)";
+    }
+}
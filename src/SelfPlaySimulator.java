@@ -0,0 +1,169 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A headless simulator that plays large batches of games between two policies.
+ * Games run on {@link BoardEngine} only, so no Swing or AWT classes are loaded. The games are
+ * split across a pool of worker threads; each worker has its own policies and random source and
+ * merges its statistics once at the end. The first moves of every game are random so that
+ * deterministic policies still produce different games.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class SelfPlaySimulator {
+    private final String policyA;
+    private final String policyB;
+    private final int threads;
+    private final int openingMoves;
+    private GameRecordWriter recordWriter;
+
+    /**
+     * Constructs a simulator.
+     * @param policyA the policy name of player A, see {@link #createPolicy(String)}
+     * @param policyB the policy name of player B
+     * @param threads the number of worker threads
+     * @param openingMoves the number of random moves at the start of each game
+     */
+    public SelfPlaySimulator(String policyA, String policyB, int threads, int openingMoves) {
+        createPolicy(policyA); // Fail early on an unknown name
+        createPolicy(policyB);
+        this.policyA = policyA;
+        this.policyB = policyB;
+        this.threads = Math.max(1, threads);
+        this.openingMoves = openingMoves;
+    }
+
+    /**
+     * Sets a writer that records every game played.
+     * @param recordWriter a record writer, or null to record nothing
+     */
+    public void setRecordWriter(GameRecordWriter recordWriter) {
+        this.recordWriter = recordWriter;
+    }
+
+    /**
+     * Returns the writer that records every game played.
+     * @return a record writer, or null
+     */
+    public GameRecordWriter getRecordWriter() {
+        return recordWriter;
+    }
+
+    /**
+     * Creates a policy from its name.
+     * @param name {@code random}, {@code greedy}, {@code search:<depth>} or {@code mcts:<millis>}
+     * @return a new policy
+     */
+    public static Policy createPolicy(String name) {
+        if (name.equals("random")) return new RandomPolicy();
+        if (name.equals("greedy")) return new GreedyPolicy();
+        if (name.startsWith("search:")) return new SearchPolicy(Integer.parseInt(name.substring(7)));
+        if (name.startsWith("mcts:")) return new MctsPolicy(Long.parseLong(name.substring(5)));
+        throw new IllegalArgumentException("unknown policy: " + name);
+    }
+
+    /**
+     * Plays a batch of games.
+     * @param stones the starting number of stones per pit
+     * @param games the number of games
+     * @param seed the seed of the random sources
+     * @return the statistics of the batch
+     */
+    public SimulationResult run(int stones, long games, long seed) {
+        long start = System.nanoTime();
+        SimulationResult total = new SimulationResult(stones);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            SplittableRandom master = new SplittableRandom(seed);
+            List<Future<SimulationResult>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long chunk = games / threads + (t < games % threads ? 1 : 0);
+                SplittableRandom random = master.split();
+                futures.add(pool.submit(() -> play(stones, chunk, random)));
+            }
+            for (Future<SimulationResult> f : futures) {
+                total.merge(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("simulation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        total.setNanos(System.nanoTime() - start);
+        return total;
+    }
+
+    /**
+     * Plays games on the calling thread.
+     */
+    private SimulationResult play(int stones, long games, SplittableRandom random) throws IOException {
+        Policy[] policies = {createPolicy(policyA), createPolicy(policyB)};
+        Policy opening = new RandomPolicy();
+        SimulationResult result = new SimulationResult(stones);
+        int[] pits = new int[BoardEngine.MAX_PITS];
+        byte[] record = new byte[256];
+
+        for (long g = 0; g < games; g++) {
+            BoardEngine.STANDARD.setStones(pits, stones);
+            int side = BoardEngine.SIDE_A;
+            int moves = 0;
+            while (true) {
+                Policy policy = moves < openingMoves ? opening : policies[side];
+                int pit = policy.choose(pits, side, random);
+                policies[0].played(pits, pit, side);
+                policies[1].played(pits, pit, side);
+                int flags = BoardEngine.STANDARD.move(pits, pit, side);
+                if (moves == record.length) record = Arrays.copyOf(record, moves * 2);
+                record[moves] = (byte) (pit | flags << GameRecordWriter.FLAG_SHIFT);
+                moves++;
+                if ((flags & BoardEngine.GAME_OVER) != 0) break;
+                side = BoardEngine.nextSide(side, flags);
+            }
+            result.addGame(pits, moves);
+            if (recordWriter != null) {
+                synchronized (recordWriter) {
+                    recordWriter.writeGame(stones, record, moves);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs a simulation and prints the statistics per starting stone count.
+     * Usage: {@code java SelfPlaySimulator [games] [policyA] [policyB] [threads] [stones,...]}
+     * The games are appended to the record file named by the {@code mancala.records} system property, if any.
+     * @param args optional games per stone count, policies, thread count and stone counts
+     */
+    public static void main(String[] args) throws IOException {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String policyA = args.length > 1 ? args[1] : "random";
+        String policyB = args.length > 2 ? args[2] : "greedy";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String stoneCounts = args.length > 4 ? args[4] : "3,4";
+
+        SelfPlaySimulator simulator = new SelfPlaySimulator(policyA, policyB, threads, 2);
+        String records = System.getProperty("mancala.records");
+        if (records != null) simulator.setRecordWriter(new GameRecordWriter(Path.of(records)));
+        System.out.println(policyA + " (A) vs " + policyB + " (B), " + threads + " threads");
+        try {
+            for (String stones : stoneCounts.split(",")) {
+                System.out.println(simulator.run(Integer.parseInt(stones.trim()), games, 42));
+            }
+        } finally {
+            if (records != null) simulator.getRecordWriter().close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * The statistics of a batch of simulated games with one starting stone count.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class SimulationResult {
+    private final int stones;
+    private long games;
+    private long winsA;
+    private long winsB;
+    private long draws;
+    private long moves;
+    private long nanos;
+
+    /**
+     * Constructs an empty result.
+     * @param stones the starting number of stones per pit
+     */
+    public SimulationResult(int stones) {
+        this.stones = stones;
+    }
+
+    /**
+     * Adds the outcome of one game.
+     * @param pits the final stones in every pit
+     * @param gameMoves the number of moves played
+     */
+    public void addGame(int[] pits, int gameMoves) {
+        int diff = pits[BoardEngine.PLAYER_A_PIT] - pits[BoardEngine.PLAYER_B_PIT];
+        games++;
+        moves += gameMoves;
+        if (diff > 0) winsA++;
+        else if (diff < 0) winsB++;
+        else draws++;
+    }
+
+    /**
+     * Adds the games of another result with the same stone count.
+     * @param other a specified result
+     */
+    public synchronized void merge(SimulationResult other) {
+        games += other.games;
+        winsA += other.winsA;
+        winsB += other.winsB;
+        draws += other.draws;
+        moves += other.moves;
+    }
+
+    /**
+     * Sets the wall-clock time taken by the batch.
+     * @param nanos a time in nanoseconds
+     */
+    public void setNanos(long nanos) {
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the starting number of stones per pit.
+     * @return a stone count
+     */
+    public int getStones() {
+        return stones;
+    }
+
+    /**
+     * Returns the number of games played.
+     * @return a game count
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Returns the number of games won by player A.
+     * @return a game count
+     */
+    public long getWinsA() {
+        return winsA;
+    }
+
+    /**
+     * Returns the number of games won by player B.
+     * @return a game count
+     */
+    public long getWinsB() {
+        return winsB;
+    }
+
+    /**
+     * Returns the number of drawn games.
+     * @return a game count
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Returns the total number of moves of all games.
+     * @return a move count
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the simulation speed.
+     * @return the number of games per second
+     */
+    public long getGamesPerSecond() {
+        return nanos == 0 ? 0 : games * 1_000_000_000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d stones: %,d games, A %.2f%% B %.2f%% draw %.2f%%, %.1f moves/game, %,d games/s",
+                stones, games, percent(winsA), percent(winsB), percent(draws),
+                games == 0 ? 0.0 : (double) moves / games, getGamesPerSecond());
+    }
+
+    private double percent(long count) {
+        return games == 0 ? 0.0 : 100.0 * count / games;
+    }
+}
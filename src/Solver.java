@@ -0,0 +1,269 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An exhaustive search that finds the exact value of a position: the final difference between
+ * the Mancalas with best play by both sides.
+ * The search is a fail-soft negamax alpha-beta with no depth limit, meant to be driven by
+ * null-window tests as in MTD(f) (see {@link OpeningSolver}). Every stone already in a Mancala
+ * stays there, so a position's value is within the stones still in play of the current
+ * difference, and a window outside that range is cut without searching. Results are kept in a
+ * {@link DiskTranspositionTable}, which several solvers may share to search in parallel.
+ * <p>
+ * A move either puts a stone into a Mancala or keeps all its stones on the mover's side, closer
+ * to the mover's Mancala, so no position repeats and every line ends. The solver works for any
+ * board geometry and rule variant; on the standard game it can also use an {@link EndgameDatabase}.
+ * An instance keeps its own position stack and is not thread-safe.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class Solver {
+    private final BoardEngine engine;
+    private final DiskTranspositionTable table;
+    private final AtomicBoolean stopSignal;
+    private final LongAdder nodeCounter;
+    private final int pitCount;
+    private final int pitsPerSide;
+    private final int ring;
+    private int[][] stack;
+    private int[][] moveLists;
+    private EndgameDatabase endgame;
+    private long nodes;
+    private boolean stopped;
+
+    /**
+     * Constructs a solver sharing a transposition table and a stop signal with other solvers.
+     * @param engine the board geometry and rule variant
+     * @param table a transposition table filled for the same game
+     * @param stopSignal a flag that stops the search when set, or null
+     * @param nodeCounter counts the nodes of every solver sharing it, or null
+     */
+    public Solver(BoardEngine engine, DiskTranspositionTable table, AtomicBoolean stopSignal, LongAdder nodeCounter) {
+        this.engine = engine;
+        this.table = table;
+        this.stopSignal = stopSignal;
+        this.nodeCounter = nodeCounter;
+        this.pitCount = engine.getPitCount();
+        this.pitsPerSide = engine.getPitsPerSide();
+        this.ring = pitCount - 1;
+        this.stack = new int[64][pitCount];
+        this.moveLists = new int[64][pitsPerSide];
+    }
+
+    /**
+     * Sets an endgame database used to score positions with few stones exactly.
+     * It is only used on the standard game.
+     * @param endgame a database, or null to search every position
+     */
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        this.endgame = engine.isStandard() ? endgame : null;
+    }
+
+    /**
+     * Searches a move within a window.
+     * The result is exact if it lies strictly inside the window, an upper bound if it is at most
+     * {@code alpha} and a lower bound if it is at least {@code beta}.
+     * @param pits the stones in every pit, left unchanged
+     * @param pit the pit to sow from, a legal move
+     * @param side the side to move
+     * @param alpha the lower end of the window
+     * @param beta the upper end of the window
+     * @return the final Mancala difference after the move, from the mover's point of view,
+     *         or 0 if the search was stopped
+     */
+    public int moveValue(int[] pits, int pit, int side, int alpha, int beta) {
+        if (!engine.isLegal(pits, pit, side)) {
+            throw new IllegalArgumentException("illegal move: pit " + pit);
+        }
+        System.arraycopy(pits, 0, stack[0], 0, pitCount);
+        return child(0, Zobrist.hash(pits, side), pit, side, alpha, beta);
+    }
+
+    /**
+     * Searches a position within a window, with the same bounds as {@link #moveValue}.
+     * @param pits the stones in every pit, left unchanged
+     * @param side the side to move
+     * @param alpha the lower end of the window
+     * @param beta the upper end of the window
+     * @return the final Mancala difference from the mover's point of view, or 0 if the search was stopped
+     */
+    public int value(int[] pits, int side, int alpha, int beta) {
+        if (engine.isOver(pits)) return difference(pits, side);
+        System.arraycopy(pits, 0, stack[0], 0, pitCount);
+        return search(0, Zobrist.hash(pits, side), side, alpha, beta);
+    }
+
+    /**
+     * Follows a best line of play from a move with a known exact value until the game ends.
+     * Each move of the line is found by a null-window test, which the transposition table
+     * left by solving the move answers almost without searching.
+     * @param pits the stones in every pit, left unchanged
+     * @param pit the first move of the line
+     * @param side the side to move
+     * @param value the exact value of the first move
+     * @return the pits played, starting with the first move, or null if the search was stopped
+     */
+    public int[] principalVariation(int[] pits, int pit, int side, int value) {
+        int[] pos = pits.clone();
+        int[] line = new int[16];
+        int length = 0;
+        int move = pit;
+        while (move >= 0) {
+            if (length == line.length) line = Arrays.copyOf(line, 2 * length);
+            line[length++] = move;
+            int flags = engine.move(pos, move, side);
+            if ((flags & BoardEngine.GAME_OVER) != 0) break;
+            int next = BoardEngine.nextSide(side, flags);
+            if (next != side) value = -value;
+            side = next;
+
+            move = -1;
+            for (int p = 0; p < pitCount && move < 0; p++) {
+                if (engine.isLegal(pos, p, side) && moveValue(pos, p, side, value - 1, value) >= value) {
+                    move = p;
+                }
+            }
+            if (stopped) return null;
+            if (move < 0) {
+                throw new IllegalStateException("no move reaches the value " + value);
+            }
+        }
+        return Arrays.copyOf(line, length);
+    }
+
+    /**
+     * Returns the number of positions searched by this solver.
+     * @return a node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Checks if a search was stopped by the stop signal. A stopped solver returns meaningless
+     * values and stores nothing, so it should be discarded.
+     * @return true once stopped
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Returns the difference between the Mancalas from the point of view of a side.
+     * @param pits the stones in every pit
+     * @param side a specified side
+     * @return the stones in the side's Mancala minus the stones in the other Mancala
+     */
+    public int difference(int[] pits, int side) {
+        return pits[engine.store(side)] - pits[engine.store(side ^ 1)];
+    }
+
+    /**
+     * Searches the position at a ply and returns its value for the side to move.
+     */
+    private int search(int ply, long hash, int side, int alpha, int beta) {
+        if ((++nodes & 1023) == 0) {
+            if (nodeCounter != null) nodeCounter.add(1024);
+            if (stopSignal != null && stopSignal.get()) stopped = true;
+        }
+        if (stopped) return 0;
+
+        // The stones left in play can change the difference by at most their number
+        int[] pos = stack[ply];
+        int diff = difference(pos, side);
+        int left = 0;
+        for (int pit = 0; pit < pitCount; pit++) {
+            left += pos[pit];
+        }
+        left -= pos[engine.store(BoardEngine.SIDE_A)] + pos[engine.store(BoardEngine.SIDE_B)];
+        if (diff + left <= alpha) return diff + left;
+        if (diff - left >= beta) return diff - left;
+        if (endgame != null) {
+            int exact = endgame.probe(pos, side);
+            if (exact != EndgameDatabase.UNKNOWN) return diff + exact;
+        }
+
+        long entry = table.probe(hash);
+        int hint = -1;
+        if (entry != 0) {
+            hint = TranspositionTable.move(entry);
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && score >= beta
+                    || bound == TranspositionTable.UPPER && score <= alpha) {
+                return score;
+            }
+        }
+
+        if (ply + 1 == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * stack.length);
+            moveLists = Arrays.copyOf(moveLists, 2 * moveLists.length);
+            for (int i = ply + 1; i < stack.length; i++) {
+                stack[i] = new int[pitCount];
+                moveLists[i] = new int[pitsPerSide];
+            }
+        }
+
+        int[] moves = moveLists[ply];
+        int count = orderMoves(pos, side, moves, hint);
+        int best = Integer.MIN_VALUE;
+        int bestPit = -1;
+        int a = alpha;
+        for (int i = 0; i < count && a < beta; i++) {
+            int score = child(ply, hash, moves[i], side, a, beta);
+            if (stopped) return 0;
+            if (score > best) {
+                best = score;
+                bestPit = moves[i];
+                if (score > a) a = score;
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best <= alpha ? TranspositionTable.UPPER : TranspositionTable.EXACT;
+        table.store(hash, Math.min(left, TranspositionTable.SOLVED - 1), bound, best, bestPit);
+        return best;
+    }
+
+    /**
+     * Plays a move from the position at a ply into the next ply and returns its value for the mover.
+     */
+    private int child(int ply, long hash, int pit, int side, int alpha, int beta) {
+        int[] pos = stack[ply];
+        int[] next = stack[ply + 1];
+        System.arraycopy(pos, 0, next, 0, pitCount);
+        int flags = engine.move(next, pit, side);
+        if ((flags & BoardEngine.GAME_OVER) != 0) {
+            return difference(next, side);
+        }
+        boolean free = (flags & BoardEngine.FREE_MOVE) != 0;
+        long childHash = Zobrist.update(hash, pos, next, !free);
+        return free ? search(ply + 1, childHash, side, alpha, beta)
+                : -search(ply + 1, childHash, side ^ 1, -beta, -alpha);
+    }
+
+    /**
+     * Lists the legal pits of a side: the stored best pit, then free moves, then the rest,
+     * each nearest to the Mancala first.
+     */
+    private int orderMoves(int[] pits, int side, int[] moves, int hint) {
+        int store = engine.store(side);
+        int count = 0;
+        if (!engine.isLegal(pits, hint, side)) hint = -1; // A hash collision may store another board's pit
+        if (hint >= 0) moves[count++] = hint;
+        for (int pit = store - 1; pit >= store - pitsPerSide; pit--) {
+            if (pit != hint && pits[pit] > 0 && pits[pit] % ring == store - pit) {
+                moves[count++] = pit;
+            }
+        }
+        for (int pit = store - 1; pit >= store - pitsPerSide; pit--) {
+            if (pit != hint && pits[pit] > 0 && pits[pit] % ring != store - pit) {
+                moves[count++] = pit;
+            }
+        }
+        return count;
+    }
+}
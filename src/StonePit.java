@@ -14,8 +14,13 @@ public class StonePit extends SelectableShape {
     private int height;
     private int numberOfStones;
     private Shape shape;
-    private final int STONE_SIZE = 20;
+    private static final int STONE_SIZE = 20;
     private Color color;
+    private static final Stroke BORDER_STROKE = new BasicStroke(3);
+    private static final Stroke STONE_STROKE = new BasicStroke(2);
+    private static final Color PIT_COLOR = new Color(210, 180, 140);
+    private static final Color SELECTION_COLOR = new Color(255, 255, 200, 128);
+    private static final Font COUNT_FONT = new Font("Arial", Font.BOLD, 22);
     
     /**
      * Constructor for StonePit class
@@ -32,43 +37,68 @@ public class StonePit extends SelectableShape {
     }
 
     /**
-     * Fills in the pit and draws the stones in them
+     * Fills in the pit and draws the stones in them.
+     * The stone count and stones are drawn from a pre-rendered sprite,
+     * so the cost does not depend on the number of stones.
      * @param g graphics
      */
     public void fill(Graphics2D g) {
+        fillShape(g);
+        fillStones(g);
+    }
+
+    /**
+     * Draws the border of the pit and fills it in, the part of the pit that does not change
+     * during a game.
+     * @param g graphics
+     */
+    public void fillShape(Graphics2D g) {
         g.setColor(Color.BLACK);
-        g.setStroke(new BasicStroke(3));
+        g.setStroke(BORDER_STROKE);
         g.draw(shape);
-        g.setColor(new Color(210, 180, 140));
+        g.setColor(PIT_COLOR);
         g.fill(shape);
-        g.setStroke(new BasicStroke(2));
+    }
 
-        // Print the number of stones in a pit
+    /**
+     * Draws the stone count and stones of the pit from a pre-rendered sprite.
+     * @param g graphics
+     */
+    public void fillStones(Graphics2D g) {
+        g.setStroke(STONE_STROKE);
         if (getNumberOfStones() > 0) {
+            g.drawImage(StoneSprites.get(getNumberOfStones()), x + StoneSprites.OFFSET_X, y + StoneSprites.OFFSET_Y, null);
+        }
+    }
+
+    /**
+     * Prints the number of stones and draws the stones of a pit one by one.
+     * @param g graphics
+     * @param x the x-coordinate of the pit
+     * @param y the y-coordinate of the pit
+     * @param stones the number of stones
+     */
+    public static void drawStones(Graphics2D g, int x, int y, int stones) {
+        g.setStroke(STONE_STROKE);
+
+        // Print the number of stones in a pit
+        if (stones > 0) {
             g.setColor(Color.WHITE);
-            Font font = new Font("Arial", Font.BOLD, 22);
-            g.setFont(font);
-            g.drawString(getNumberOfStones() + "", x + 25, y + 30);
+            g.setFont(COUNT_FONT);
+            g.drawString(stones + "", x + 25, y + 30);
         }
 
         // Draw stones in overlapping fashion
+        Ellipse2D.Double stone = new Ellipse2D.Double();
         int row = 1;
-        for (int i = 0; i < getNumberOfStones(); i++) {
-            double x;
-            double y;
-            if (row % 2 == 1) {
-                x = this.x + 30;
-                y = (this.y + 5) + 8 * row / 1.5;
-            } else {
-                x = this.x + 15;
-                y = (this.y + 5) + 8 * row / 1.5;
-            }
-
-            Ellipse2D.Double stone = new Ellipse2D.Double(x, y + 35, getSTONE_SIZE(), getSTONE_SIZE() - 10);
+        for (int i = 0; i < stones; i++) {
+            double stoneX = row % 2 == 1 ? x + 30 : x + 15;
+            double stoneY = (y + 5) + 8 * row / 1.5;
+
+            stone.setFrame(stoneX, stoneY + 35, STONE_SIZE, STONE_SIZE - 10);
             g.setColor(Color.LIGHT_GRAY);
             g.fill(stone);
             g.setColor(Color.BLACK);
-            g.setStroke (new BasicStroke(2));
             g.draw(stone);
             row++;
         }
@@ -121,10 +151,10 @@ public class StonePit extends SelectableShape {
     @Override
     public void drawSelection(Graphics2D g) {
         Color previous = g.getColor(); // Save the current color
-        g.setColor(new Color(255, 255, 200, 128)); // Set translucent highlight color
+        g.setColor(SELECTION_COLOR); // Set translucent highlight color
         g.fill(shape); // Fill the shape for selection
         g.setColor(Color.RED); // Highlight border
-        g.setStroke(new BasicStroke(3));
+        g.setStroke(BORDER_STROKE);
         g.draw(shape); // Draw border around the shape
         g.setColor(previous); // Restore the original color
     }
@@ -139,6 +169,18 @@ public class StonePit extends SelectableShape {
         return shape.contains(p);
     }
 
+    /**
+     * Returns the region covered when drawing this pit: its shape and border, the stone
+     * count and the column of stones, which may extend below the shape.
+     * @return a rectangle around everything drawn for this pit
+     */
+    public Rectangle getRepaintBounds() {
+        final int BORDER = 2; // Half of the widest stroke, rounded up
+        int stonesBottom = (int) Math.ceil(5 + 8 * getNumberOfStones() / 1.5 + 35 + getSTONE_SIZE() - 10) + BORDER;
+        return new Rectangle(x - BORDER, y - BORDER, width + 2 * BORDER,
+                Math.max(height, stonesBottom) + 2 * BORDER);
+    }
+
     /**
      * Sets the shape of a pit to a specified shape.
      * @param s the shape to set the pit to
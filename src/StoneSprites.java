@@ -0,0 +1,59 @@
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A cache of pre-rendered stone sprites.
+ * For each stone count, the count label and the stacked column of stones are rendered once
+ * into a translucent image, so drawing the stones of a pit is a single image copy however
+ * many stones it holds. Stones look the same in every board format, so the sprites are
+ * shared by all formats.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class StoneSprites {
+    /** Horizontal position of a sprite relative to its pit. */
+    public static final int OFFSET_X = 10;
+    /** Vertical position of a sprite relative to its pit. */
+    public static final int OFFSET_Y = 0;
+    private static final int WIDTH = 64;
+    private static final Map<Integer, Image> SPRITES = new ConcurrentHashMap<>();
+
+    private StoneSprites() {
+    }
+
+    /**
+     * Returns the sprite for a number of stones, rendering it on first use.
+     * @param stones a number of stones
+     * @return an image to draw at the pit position plus the offsets
+     */
+    public static Image get(int stones) {
+        return SPRITES.computeIfAbsent(stones, StoneSprites::render);
+    }
+
+    /** Removes every sprite, for example after the screen configuration changed. */
+    public static void clear() {
+        SPRITES.clear();
+    }
+
+    /**
+     * Renders the stones of a pit into a new sprite.
+     */
+    private static Image render(int stones) {
+        int height = (int) Math.ceil(5 + 8 * stones / 1.5 + 35 + 10) + 2;
+        BufferedImage image;
+        if (GraphicsEnvironment.isHeadless()) {
+            image = new BufferedImage(WIDTH, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        else {
+            image = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().createCompatibleImage(WIDTH, height, Transparency.TRANSLUCENT);
+        }
+        Graphics2D g = image.createGraphics();
+        StonePit.drawStones(g, -OFFSET_X, -OFFSET_Y, stones);
+        g.dispose();
+        return image;
+    }
+}
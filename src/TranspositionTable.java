@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table for game-tree search.
+ * Entries are stored in two parallel arrays and verified by keeping the hash exclusive-or'ed
+ * with the entry data, so a torn write from a concurrent searcher is detected as a miss and
+ * no locking is needed. Each bucket holds two entries: a depth-preferred slot and an
+ * always-replace slot.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public class TranspositionTable {
+    /** Bound type: the score is exact. */
+    public static final int EXACT = 0;
+    /** Bound type: the score is a lower bound (the search failed high). */
+    public static final int LOWER = 1;
+    /** Bound type: the score is an upper bound (the search failed low). */
+    public static final int UPPER = 2;
+    /** Depth stored for subtrees searched to the end of the game. */
+    public static final int SOLVED = 255;
+
+    private static final long VALID = 1L << 31;
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private int age;
+
+    /**
+     * Constructs a table with a number of entries.
+     * @param sizeBits the log2 of the number of entries
+     */
+    public TranspositionTable(int sizeBits) {
+        if (sizeBits < 1 || sizeBits > 30) {
+            throw new IllegalArgumentException("sizeBits must be between 1 and 30");
+        }
+        keys = new long[1 << sizeBits];
+        data = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 2; // Index of the first slot of a bucket
+    }
+
+    /**
+     * Looks up a position.
+     * @param hash the hash of the position
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        int i = (int) hash & mask;
+        long d = data[i];
+        if ((keys[i] ^ d) == hash && d != 0) return d;
+        d = data[i + 1];
+        if ((keys[i + 1] ^ d) == hash && d != 0) return d;
+        return 0;
+    }
+
+    /**
+     * Stores the result of a search.
+     * @param hash the hash of the position
+     * @param depth the searched depth, or {@link #SOLVED}
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param score the score from the mover's point of view
+     * @param move the best pit, or -1 if unknown
+     */
+    public void store(long hash, int depth, int bound, int score, int move) {
+        long d = pack(depth, bound, score, move, age);
+
+        int i = (int) hash & mask;
+        long old = data[i];
+        boolean sameKey = (keys[i] ^ old) == hash;
+        if (old == 0 || sameKey || depth >= depth(old) || age(old) != (age & 0xFF)) {
+            data[i] = d;
+            keys[i] = hash ^ d;
+        }
+        else {
+            data[i + 1] = d;
+            keys[i + 1] = hash ^ d;
+        }
+    }
+
+    /**
+     * Packs the fields of an entry into the layout read by {@link #score(long)} and the other accessors.
+     * @param depth the searched depth, or {@link #SOLVED}
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param score the score from the mover's point of view
+     * @param move the best pit, or -1 if unknown
+     * @param age the search the entry belongs to
+     * @return a non-zero packed entry
+     */
+    static long pack(int depth, int bound, int score, int move, int age) {
+        return VALID
+                | (score + 32768L & 0xFFFF)
+                | (long) (depth & 0xFF) << 16
+                | (long) bound << 24
+                | (long) (move + 1 & 0xFF) << 32
+                | (long) (age & 0xFF) << 40;
+    }
+
+    /** Marks the start of a new search so entries of older searches are replaced first. */
+    public void newSearch() {
+        age++;
+    }
+
+    /** Removes every entry. */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * Returns the number of entries of this table.
+     * @return a capacity
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the score of a packed entry.
+     * @param entry a packed entry
+     * @return the stored score
+     */
+    public static int score(long entry) {
+        return (int) (entry & 0xFFFF) - 32768;
+    }
+
+    /**
+     * Returns the depth of a packed entry.
+     * @param entry a packed entry
+     * @return the stored depth
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    /**
+     * Returns the bound type of a packed entry.
+     * @param entry a packed entry
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    /**
+     * Returns the best pit of a packed entry.
+     * @param entry a packed entry
+     * @return a pit index, or -1 if unknown
+     */
+    public static int move(long entry) {
+        return (int) (entry >>> 32 & 0xFF) - 1;
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> 40) & 0xFF;
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing for board positions.
+ * A position hash is the exclusive or of one random key per (pit, stone count) pair and
+ * one key for side B to move. Keys come from a fixed seed so hashes are stable across runs
+ * and can be stored in files.
+ *
+ * @author Tuan-Anh Ho
+ * @version 1.0 12/05/2024
+ */
+public final class Zobrist {
+    public static final int MAX_STONES = 255;
+    private static final long SEED = 0x4D414E43414C41L;
+    private static final long[][] KEYS = new long[2 * BoardEngine.MAX_PITS_PER_SIDE + 2][MAX_STONES + 1];
+    private static final long SIDE_B_KEY;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int pit = 0; pit < BoardEngine.MAX_PITS; pit++) {
+            fill(KEYS[pit], random);
+        }
+        // Drawn before the keys of larger boards, so hashes of the standard board stay the same
+        SIDE_B_KEY = random.nextLong();
+        for (int pit = BoardEngine.MAX_PITS; pit < KEYS.length; pit++) {
+            fill(KEYS[pit], random);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    private static void fill(long[] pitKeys, SplittableRandom random) {
+        for (int count = 0; count <= MAX_STONES; count++) {
+            pitKeys[count] = random.nextLong();
+        }
+    }
+
+    /**
+     * Computes the hash of a position from scratch.
+     * @param pits the stones in every pit, for a board of any supported size
+     * @param side the side to move
+     * @return a 64-bit hash
+     */
+    public static long hash(int[] pits, int side) {
+        long h = side == BoardEngine.SIDE_B ? SIDE_B_KEY : 0;
+        for (int pit = 0; pit < pits.length; pit++) {
+            h ^= KEYS[pit][pits[pit] & MAX_STONES];
+        }
+        return h;
+    }
+
+    /**
+     * Updates a hash after a move, touching only the pits whose count changed.
+     * @param hash the hash of the position before the move
+     * @param before the stones in every pit before the move
+     * @param after the stones in every pit after the move
+     * @param sideChanged true if the side to move changed
+     * @return the hash of the position after the move
+     */
+    public static long update(long hash, int[] before, int[] after, boolean sideChanged) {
+        for (int pit = 0; pit < before.length; pit++) {
+            int from = before[pit];
+            int to = after[pit];
+            if (from != to) {
+                hash ^= KEYS[pit][from & MAX_STONES] ^ KEYS[pit][to & MAX_STONES];
+            }
+        }
+        return sideChanged ? hash ^ SIDE_B_KEY : hash;
+    }
+}